@@ -0,0 +1,20 @@
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * Told about passengers as they get off an elevator, e.g. by an ElevatorBank to send the ones
+ * that still have to change banks on to the next one.
+ */
+public interface ArrivalListener
+{
+	/**
+	 * Called by the elevator that dropped the passengers off, on its own thread, once per cohort.
+	 * @param floor [in] the floor the passengers got off at.
+	 * @param originFloor [in] the floor they spawned on.
+	 * @param spawnTime [in] the SimClock time they spawned.
+	 * @param count [in] the number of passengers.
+	 */
+	void passengersArrived(int floor, int originFloor, int spawnTime, int count);
+}
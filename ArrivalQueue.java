@@ -0,0 +1,134 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * A min-heap of the arrivals of an ArrivalSchedule, keyed by their next spawn time.
+ * Used by both simulation modes so each tick only touches the arrivals that spawn on it,
+ * instead of checking every arrival of the schedule.
+ * The heap holds arrival indexes in a plain int array. Arrivals with the same time are ordered by index,
+ * so they spawn in the order of the config file. When the earliest arrival spawns, it is moved on to its
+ * next time and sifted down in place. Arrivals that are done leave the heap.
+ */
+public class ArrivalQueue implements ArrivalSource
+{
+	private ArrivalSchedule arrivals;
+	private int[] heap;
+	private int size;
+
+	/**
+	 * Default constructor. Queues every arrival of the schedule that still has spawns left.
+	 * @param schedule [in] the passenger arrivals.
+	 */
+	public ArrivalQueue(ArrivalSchedule schedule)
+	{
+		arrivals = schedule;
+		heap = new int[schedule.size()];
+		for (int i = 0; i < schedule.size(); i++) {
+			if (schedule.getNextTime(i) != ArrivalSchedule.NEVER) {
+				heap[size++] = i;
+			}
+		}
+
+		// The indexes are already in order, but the times aren't.
+		for (int i = size / 2 - 1; i >= 0; i--) {
+			siftDown(i);
+		}
+	}
+
+	/**
+	 * @return the earliest spawn time of any arrival. ArrivalSchedule.NEVER if there are none left.
+	 */
+	@Override
+	public int peekTime()
+	{
+		return size == 0 ? ArrivalSchedule.NEVER : arrivals.getNextTime(heap[0]);
+	}
+
+	/**
+	 * Spawns the passengers of every arrival that is due at the current SimClock time and reschedules them.
+	 * Not thread safe. Only main (or one specific) thread should be calling this.
+	 * @param sink [in] where to spawn the passengers, usually the building manager.
+	 */
+	@Override
+	public void spawnDueArrivals(PassengerSink sink)
+	{
+		int time = sink.getClock().getTime();
+		while (size > 0 && arrivals.getNextTime(heap[0]) <= time) {
+			int arrival = heap[0];
+
+			// Only spawn on the exact time. An arrival can only be late if the clock started after it.
+			if (arrivals.getNextTime(arrival) == time) {
+				sink.spawnPassengers(arrivals.getSpawnFloor(arrival), arrivals.getDestinationFloor(arrival),
+										arrivals.getNumPassengers(arrival));
+			}
+
+			arrivals.advance(arrival);
+			if (arrivals.getNextTime(arrival) == ArrivalSchedule.NEVER) {
+				// One-shot arrivals and arrivals past their time window are done.
+				heap[0] = heap[--size];
+			}
+			siftDown(0);
+		}
+	}
+
+	/**
+	 * Writes the schedule for a SimulationSnapshot. The heap is rebuilt from the next times when it is read back.
+	 * @param out [in] the snapshot stream.
+	 */
+	@Override
+	public void writeState(DataOutputStream out) throws IOException
+	{
+		out.writeByte(SimulationSnapshot.ARRIVAL_QUEUE);
+		arrivals.writeState(out);
+	}
+
+	/**
+	 * Reads back a queue written by writeState(), after its source type.
+	 * @param in [in] the snapshot stream.
+	 * @return the queue.
+	 */
+	public static ArrivalQueue readState(DataInputStream in) throws IOException
+	{
+		return new ArrivalQueue(ArrivalSchedule.readState(in));
+	}
+
+	/**
+	 * Moves the arrival at a heap position down until both of its children are later.
+	 * @param position [in] the heap position.
+	 */
+	private void siftDown(int position)
+	{
+		int arrival = heap[position];
+		while (true) {
+			int child = position * 2 + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && isBefore(heap[child + 1], heap[child])) {
+				child++;
+			}
+			if (!isBefore(heap[child], arrival)) {
+				break;
+			}
+			heap[position] = heap[child];
+			position = child;
+		}
+		heap[position] = arrival;
+	}
+
+	/**
+	 * @return whether or not arrival a spawns before arrival b.
+	 */
+	private boolean isBefore(int a, int b)
+	{
+		int timeA = arrivals.getNextTime(a);
+		int timeB = arrivals.getNextTime(b);
+		return timeA != timeB ? timeA < timeB : a < b;
+	}
+}
@@ -0,0 +1,167 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * All the passenger arrivals of a simulation, stored as parallel int arrays instead of one object per arrival,
+ * so schedules with millions of arrivals stay compact.
+ * Each arrival spawns a number of passengers on a floor going to a destination floor, starting at nextTime:
+ * 		- periodic arrivals spawn again every period ticks, up to endTime
+ * 		- one-shot arrivals have a period of 0 and only spawn once
+ * Once an arrival is done its nextTime is Integer.MAX_VALUE.
+ */
+public class ArrivalSchedule
+{
+	public static final int NEVER = Integer.MAX_VALUE;
+
+	private int size;
+	private int[] spawnFloor;
+	private int[] numPassengers;
+	private int[] destinationFloor;
+	private int[] period;
+	private int[] nextTime;
+	private int[] endTime;
+
+	/**
+	 * Default constructor. The schedule starts empty.
+	 */
+	public ArrivalSchedule()
+	{
+		spawnFloor = new int[16];
+		numPassengers = new int[16];
+		destinationFloor = new int[16];
+		period = new int[16];
+		nextTime = new int[16];
+		endTime = new int[16];
+	}
+
+	/**
+	 * Adds an arrival to the schedule.
+	 * @param iSpawnFloor [in] the floor the passengers spawn on.
+	 * @param passengers [in] number of passengers to spawn.
+	 * @param iDestinationFloor [in] the floor they want to go to.
+	 * @param firstTime [in] the time of the first spawn.
+	 * @param iPeriod [in] ticks between spawns, 0 to spawn only once.
+	 * @param iEndTime [in] the last time the passengers may spawn.
+	 */
+	public void add(int iSpawnFloor, int passengers, int iDestinationFloor, int firstTime, int iPeriod, int iEndTime)
+	{
+		if (size == spawnFloor.length) {
+			int capacity = size * 2;
+			spawnFloor = Arrays.copyOf(spawnFloor, capacity);
+			numPassengers = Arrays.copyOf(numPassengers, capacity);
+			destinationFloor = Arrays.copyOf(destinationFloor, capacity);
+			period = Arrays.copyOf(period, capacity);
+			nextTime = Arrays.copyOf(nextTime, capacity);
+			endTime = Arrays.copyOf(endTime, capacity);
+		}
+
+		spawnFloor[size] = iSpawnFloor;
+		numPassengers[size] = passengers;
+		destinationFloor[size] = iDestinationFloor;
+		period[size] = iPeriod;
+		nextTime[size] = firstTime <= iEndTime ? firstTime : NEVER;
+		endTime[size] = iEndTime;
+		size++;
+	}
+
+	/**
+	 * Moves an arrival on to its next spawn time, after its passengers spawned.
+	 * @param arrival [in] the arrival index.
+	 */
+	public void advance(int arrival)
+	{
+		// Compare against endTime - period so the addition can't overflow.
+		if (period[arrival] == 0 || nextTime[arrival] > endTime[arrival] - period[arrival]) {
+			nextTime[arrival] = NEVER;
+		}
+		else {
+			nextTime[arrival] += period[arrival];
+		}
+	}
+
+	/**
+	 * @return the number of arrivals.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @param arrival [in] the arrival index.
+	 * @return the floor the passengers spawn on.
+	 */
+	public int getSpawnFloor(int arrival)
+	{
+		return spawnFloor[arrival];
+	}
+
+	/**
+	 * @param arrival [in] the arrival index.
+	 * @return the number of passengers.
+	 */
+	public int getNumPassengers(int arrival)
+	{
+		return numPassengers[arrival];
+	}
+
+	/**
+	 * @param arrival [in] the arrival index.
+	 * @return the destination floor.
+	 */
+	public int getDestinationFloor(int arrival)
+	{
+		return destinationFloor[arrival];
+	}
+
+	/**
+	 * @param arrival [in] the arrival index.
+	 * @return the next time against SimClock to spawn. NEVER if the arrival is done.
+	 */
+	public int getNextTime(int arrival)
+	{
+		return nextTime[arrival];
+	}
+
+	/**
+	 * Writes every arrival and where it is up to for a SimulationSnapshot.
+	 * @param out [in] the snapshot stream.
+	 */
+	public void writeState(DataOutputStream out) throws IOException
+	{
+		out.writeInt(size);
+		for (int i = 0; i < size; i++) {
+			out.writeInt(spawnFloor[i]);
+			out.writeInt(numPassengers[i]);
+			out.writeInt(destinationFloor[i]);
+			out.writeInt(period[i]);
+			out.writeInt(nextTime[i]);
+			out.writeInt(endTime[i]);
+		}
+	}
+
+	/**
+	 * Reads back a schedule written by writeState().
+	 * @param in [in] the snapshot stream.
+	 * @return the schedule, with every arrival at the same next time as when it was written.
+	 */
+	public static ArrivalSchedule readState(DataInputStream in) throws IOException
+	{
+		ArrivalSchedule schedule = new ArrivalSchedule();
+		int arrivals = in.readInt();
+		for (int i = 0; i < arrivals; i++) {
+			schedule.add(in.readInt(), in.readInt(), in.readInt(), 0, in.readInt(), 0);
+			schedule.nextTime[i] = in.readInt();
+			schedule.endTime[i] = in.readInt();
+		}
+
+		return schedule;
+	}
+}
@@ -0,0 +1,33 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * Something that spawns passengers over time, e.g. the arrivals of the config file or a TrafficGenerator.
+ * Both simulation modes ask every source to spawn its due passengers at the start of a tick,
+ * and the discrete-event mode uses peekTime() to jump to the next tick that has anything to spawn.
+ */
+public interface ArrivalSource
+{
+	/**
+	 * @return the next time this source spawns passengers. ArrivalSchedule.NEVER if it is done.
+	 */
+	int peekTime();
+
+	/**
+	 * Spawns the passengers that arrive at the current SimClock time of the sink.
+	 * Not thread safe. Only main (or one specific) thread should be calling this.
+	 * @param sink [in] where to spawn the passengers, usually the building manager.
+	 */
+	void spawnDueArrivals(PassengerSink sink);
+
+	/**
+	 * Writes the source and where it is up to for a SimulationSnapshot, starting with its SimulationSnapshot source type.
+	 * @param out [in] the snapshot stream.
+	 */
+	void writeState(DataOutputStream out) throws IOException;
+}
@@ -0,0 +1,105 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * A fixed size bit set that can be changed by several threads without locking.
+ * Each bit lives in a word of an AtomicLongArray and is set or cleared with an atomic update,
+ * so threads working on different bits never block each other.
+ */
+public class AtomicBitSet
+{
+	private AtomicLongArray words;
+
+	/**
+	 * Default constructor. All bits start cleared.
+	 * @param size [in] the number of bits.
+	 */
+	public AtomicBitSet(int size)
+	{
+		words = new AtomicLongArray((size + 63) / 64);
+	}
+
+	/**
+	 * Sets a bit.
+	 * @param index [in] the bit to set.
+	 */
+	public void set(int index)
+	{
+		words.getAndAccumulate(index >> 6, 1L << index, (word, mask) -> word | mask);
+	}
+
+	/**
+	 * Clears a bit.
+	 * @param index [in] the bit to clear.
+	 */
+	public void clear(int index)
+	{
+		words.getAndAccumulate(index >> 6, 1L << index, (word, mask) -> word & ~mask);
+	}
+
+	/**
+	 * @param index [in] the bit to check.
+	 * @return whether or not the bit is set.
+	 */
+	public boolean get(int index)
+	{
+		return (words.get(index >> 6) & (1L << index)) != 0;
+	}
+
+	/**
+	 * @param fromIndex [in] the first bit to check.
+	 * @return the first set bit at or after fromIndex.
+	 * 		   -1 if there is none.
+	 */
+	public int nextSetBit(int fromIndex)
+	{
+		int wordIndex = fromIndex >> 6;
+		if (wordIndex >= words.length()) {
+			return -1;
+		}
+
+		// Ignore the bits before fromIndex in the first word.
+		long word = words.get(wordIndex) & (-1L << fromIndex);
+		while (true) {
+			if (word != 0) {
+				return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+			}
+			if (++wordIndex == words.length()) {
+				return -1;
+			}
+			word = words.get(wordIndex);
+		}
+	}
+
+	/**
+	 * @param fromIndex [in] the first bit to check.
+	 * @return the last set bit at or before fromIndex.
+	 * 		   -1 if there is none.
+	 */
+	public int previousSetBit(int fromIndex)
+	{
+		if (fromIndex < 0) {
+			return -1;
+		}
+
+		int wordIndex = Math.min(fromIndex >> 6, words.length() - 1);
+		// Ignore the bits after fromIndex in the first word.
+		long word = words.get(wordIndex);
+		if (wordIndex == fromIndex >> 6) {
+			word &= -1L >>> (63 - (fromIndex & 63));
+		}
+		while (true) {
+			if (word != 0) {
+				return (wordIndex << 6) + 63 - Long.numberOfLeadingZeros(word);
+			}
+			if (wordIndex-- == 0) {
+				return -1;
+			}
+			word = words.get(wordIndex);
+		}
+	}
+}
@@ -0,0 +1,166 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * The passengers the ZonedSimulation sends to one ElevatorBank: new passengers routed to the bank, and
+ * passengers coming over from another bank once they have walked across the transfer floor.
+ * They are kept in a min-heap keyed by spawn time, in parallel int arrays like the ArrivalQueue.
+ * Passengers with the same time spawn in the order they were added, so every run spawns them the same way.
+ * Only the main thread adds passengers, between the windows the banks run in, and only the bank's thread spawns them.
+ */
+public class BankArrivals implements ArrivalSource
+{
+	private int[] times;
+	private int[] floors;
+	private int[] destinations;
+	private int[] counts;
+	private int[] order;
+	private int size;
+	private int added;
+
+	/**
+	 * Default constructor. The queue starts empty.
+	 */
+	public BankArrivals()
+	{
+		times = new int[16];
+		floors = new int[16];
+		destinations = new int[16];
+		counts = new int[16];
+		order = new int[16];
+	}
+
+	/**
+	 * Queues passengers to spawn in the bank.
+	 * @param time [in] the SimClock time they spawn. Must not be before the bank's clock.
+	 * @param floor [in] the bank floor they spawn on.
+	 * @param destination [in] the bank floor they are going to.
+	 * @param count [in] the number of passengers.
+	 */
+	public void add(int time, int floor, int destination, int count)
+	{
+		if (size == times.length) {
+			int capacity = size * 2;
+			times = Arrays.copyOf(times, capacity);
+			floors = Arrays.copyOf(floors, capacity);
+			destinations = Arrays.copyOf(destinations, capacity);
+			counts = Arrays.copyOf(counts, capacity);
+			order = Arrays.copyOf(order, capacity);
+		}
+
+		// Sift the new entry up from the end.
+		int position = size++;
+		while (position > 0) {
+			int parent = (position - 1) / 2;
+			if (times[parent] <= time) {
+				break;
+			}
+			move(parent, position);
+			position = parent;
+		}
+		times[position] = time;
+		floors[position] = floor;
+		destinations[position] = destination;
+		counts[position] = count;
+		order[position] = added++;
+	}
+
+	/**
+	 * @return the number of passengers queued that haven't spawned yet.
+	 */
+	public int getPassengerCount()
+	{
+		int passengers = 0;
+		for (int i = 0; i < size; i++) {
+			passengers += counts[i];
+		}
+		return passengers;
+	}
+
+	@Override
+	public int peekTime()
+	{
+		return size == 0 ? ArrivalSchedule.NEVER : times[0];
+	}
+
+	@Override
+	public void spawnDueArrivals(PassengerSink sink)
+	{
+		int time = sink.getClock().getTime();
+		while (size > 0 && times[0] <= time) {
+			sink.spawnPassengers(floors[0], destinations[0], counts[0]);
+			size--;
+			if (size > 0) {
+				siftDown();
+			}
+		}
+	}
+
+	/**
+	 * Zoned simulations can't be saved in a snapshot.
+	 */
+	@Override
+	public void writeState(DataOutputStream out) throws IOException
+	{
+		throw new IOException("passengers sent to an elevator bank can't be saved in a snapshot");
+	}
+
+	/**
+	 * Moves the last entry to the root and down until both of its children come after it.
+	 */
+	private void siftDown()
+	{
+		int time = times[size];
+		int floor = floors[size];
+		int destination = destinations[size];
+		int count = counts[size];
+		int sequence = order[size];
+
+		int position = 0;
+		while (true) {
+			int child = position * 2 + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && isBefore(child + 1, child)) {
+				child++;
+			}
+			if (times[child] > time || (times[child] == time && order[child] > sequence)) {
+				break;
+			}
+			move(child, position);
+			position = child;
+		}
+		times[position] = time;
+		floors[position] = floor;
+		destinations[position] = destination;
+		counts[position] = count;
+		order[position] = sequence;
+	}
+
+	/**
+	 * @return whether or not the entry at heap position a spawns before the one at b.
+	 */
+	private boolean isBefore(int a, int b)
+	{
+		return times[a] != times[b] ? times[a] < times[b] : order[a] < order[b];
+	}
+
+	/**
+	 * Copies the entry at heap position from to position to.
+	 */
+	private void move(int from, int to)
+	{
+		times[to] = times[from];
+		floors[to] = floors[from];
+		destinations[to] = destinations[from];
+		counts[to] = counts[from];
+		order[to] = order[from];
+	}
+}
@@ -0,0 +1,398 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * How the elevators of a zoned building are split into banks, read in from a bank file:
+ * 		- the first line: the transfer time, i.e. the ticks it takes to walk from one bank to another
+ * 		- the rest: one bank per line, "name elevators floors". The floors are a comma separated list of
+ * 		  floors and floor ranges, e.g. "0-19" for a low rise bank or "0,20,40" for an express shuttle.
+ * 		  Blank lines and lines starting with "#" are skipped.
+ * Every floor has to be served by at least one bank. Floors served by more than one bank are transfer
+ * floors (sky lobbies), where passengers change banks.
+ *
+ * The route of every trip is worked out when the file is read. A passenger takes the bank at their floor
+ * that gets them to their destination with the fewest changes. If that bank doesn't go there, they ride it to
+ * the transfer floor of the next bank on the way that is the shortest way round, and are routed again from there.
+ * Both tables are floor x destination matrices, so routing a passenger is two array reads.
+ */
+public class BankLayout
+{
+	private int floorCount;
+	private int transferTicks;
+	private String[] names;
+	private int[] elevatorCounts;
+	private int[][] floors;
+	private boolean[] transferFloors;
+	private int[] nextBank;
+	private int[] nextFloor;
+
+	/**
+	 * @param iFloorCount [in] the number of building floors.
+	 * @param iTransferTicks [in] the ticks it takes to change banks.
+	 * @param iNames [in] the name of every bank.
+	 * @param iElevatorCounts [in] the number of elevators of every bank.
+	 * @param iFloors [in] the floors every bank serves, from the bottom up.
+	 */
+	private BankLayout(int iFloorCount, int iTransferTicks, String[] iNames, int[] iElevatorCounts, int[][] iFloors)
+	{
+		floorCount = iFloorCount;
+		transferTicks = iTransferTicks;
+		names = iNames;
+		elevatorCounts = iElevatorCounts;
+		floors = iFloors;
+
+		transferFloors = new boolean[floorCount];
+		int[] banksAtFloor = new int[floorCount];
+		for (int[] bankFloors : floors) {
+			for (int floor : bankFloors) {
+				banksAtFloor[floor]++;
+				transferFloors[floor] = banksAtFloor[floor] > 1;
+			}
+		}
+	}
+
+	/**
+	 * Reads and checks a bank file.
+	 * @param fileName [in] path of the bank file.
+	 * @param floorCount [in] the number of building floors the banks must fit in.
+	 * @return the layout in the file.
+	 * @throws ConfigException if the file can't be read, has a mistake in it, or some trips can't be made.
+	 */
+	public static BankLayout load(String fileName, int floorCount)
+	{
+		int transferTicks = -1;
+		ArrayList<String> names = new ArrayList<String>();
+		ArrayList<Integer> elevatorCounts = new ArrayList<Integer>();
+		ArrayList<int[]> floors = new ArrayList<int[]>();
+
+		try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+			int lineNumber = 0;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+
+				if (transferTicks == -1) {
+					transferTicks = parseInt(fileName, lineNumber, line, "transfer time");
+					if (transferTicks < 1) {
+						throw new ConfigException(fileName, lineNumber, "the transfer time must be at least 1 tick");
+					}
+					continue;
+				}
+
+				String[] fields = line.split("\\s+");
+				if (fields.length != 3) {
+					throw new ConfigException(fileName, lineNumber, "\"" + line + "\" should be \"name elevators floors\"");
+				}
+				if (names.contains(fields[0])) {
+					throw new ConfigException(fileName, lineNumber, "there is already a bank called " + fields[0]);
+				}
+				int elevators = parseInt(fileName, lineNumber, fields[1], "elevator count");
+				if (elevators < 1) {
+					throw new ConfigException(fileName, lineNumber, "bank " + fields[0] + " needs at least 1 elevator");
+				}
+				int[] bankFloors = parseFloors(fileName, lineNumber, fields[2], floorCount);
+				if (bankFloors.length < 2) {
+					throw new ConfigException(fileName, lineNumber, "bank " + fields[0] + " needs at least 2 floors");
+				}
+
+				names.add(fields[0]);
+				elevatorCounts.add(elevators);
+				floors.add(bankFloors);
+			}
+		}
+		catch (IOException e) {
+			throw new ConfigException("Cannot read bank file " + fileName + ": " + e.getMessage(), e);
+		}
+		if (names.isEmpty()) {
+			throw new ConfigException("Bank file " + fileName + " has no banks", null);
+		}
+
+		int[] counts = new int[elevatorCounts.size()];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = elevatorCounts.get(i);
+		}
+		BankLayout layout = new BankLayout(floorCount, transferTicks, names.toArray(new String[0]), counts,
+										   floors.toArray(new int[0][]));
+		layout.route(fileName);
+		return layout;
+	}
+
+	/**
+	 * @return the number of building floors.
+	 */
+	public int getFloorCount()
+	{
+		return floorCount;
+	}
+
+	/**
+	 * @return the ticks it takes to walk from one bank to another at a transfer floor.
+	 */
+	public int getTransferTicks()
+	{
+		return transferTicks;
+	}
+
+	/**
+	 * @return the number of banks.
+	 */
+	public int getBankCount()
+	{
+		return names.length;
+	}
+
+	/**
+	 * @param bank [in] the bank, 0 to getBankCount() - 1.
+	 * @return its name.
+	 */
+	public String getName(int bank)
+	{
+		return names[bank];
+	}
+
+	/**
+	 * @param bank [in] the bank, 0 to getBankCount() - 1.
+	 * @return its number of elevators.
+	 */
+	public int getElevatorCount(int bank)
+	{
+		return elevatorCounts[bank];
+	}
+
+	/**
+	 * @param bank [in] the bank, 0 to getBankCount() - 1.
+	 * @return the building floors it serves, from the bottom up. Don't change the array.
+	 */
+	public int[] getFloors(int bank)
+	{
+		return floors[bank];
+	}
+
+	/**
+	 * @param floor [in] specific building floor.
+	 * @return whether or not passengers change banks there.
+	 */
+	public boolean isTransferFloor(int floor)
+	{
+		return transferFloors[floor];
+	}
+
+	/**
+	 * @param floor [in] the floor a passenger is on.
+	 * @param destination [in] the floor they are going to. Must not be floor.
+	 * @return the bank they take next.
+	 */
+	public int getNextBank(int floor, int destination)
+	{
+		return nextBank[floor * floorCount + destination];
+	}
+
+	/**
+	 * @param floor [in] the floor a passenger is on.
+	 * @param destination [in] the floor they are going to. Must not be floor.
+	 * @return the floor they get off the next bank at, destination itself if they don't have to change again.
+	 */
+	public int getNextFloor(int floor, int destination)
+	{
+		return nextFloor[floor * floorCount + destination];
+	}
+
+	/**
+	 * Fills in the routing tables.
+	 * @param fileName [in] the bank file, for the error message.
+	 * @throws ConfigException if a floor isn't served or a trip can't be made.
+	 */
+	private void route(String fileName)
+	{
+		int bankCount = names.length;
+		boolean[][] serves = new boolean[bankCount][floorCount];
+		for (int bank = 0; bank < bankCount; bank++) {
+			for (int floor : floors[bank]) {
+				serves[bank][floor] = true;
+			}
+		}
+		for (int floor = 0; floor < floorCount; floor++) {
+			if (bankAt(serves, floor) == -1) {
+				throw new ConfigException(fileName + ": Floor " + floor + " is not served by any bank", null);
+			}
+		}
+
+		nextBank = new int[floorCount * floorCount];
+		nextFloor = new int[floorCount * floorCount];
+		int[] rides = new int[bankCount];
+		for (int destination = 0; destination < floorCount; destination++) {
+			countRides(serves, destination, rides);
+
+			for (int floor = 0; floor < floorCount; floor++) {
+				if (floor == destination) {
+					continue;
+				}
+
+				// Take the bank at the floor with the fewest rides left, the first one listed on a tie.
+				int best = -1;
+				for (int bank = 0; bank < bankCount; bank++) {
+					if (serves[bank][floor] && rides[bank] != 0 && (best == -1 || rides[bank] < rides[best])) {
+						best = bank;
+					}
+				}
+				if (best == -1) {
+					throw new ConfigException(fileName + ": the banks don't connect Floor " + floor + " to Floor " + destination, null);
+				}
+
+				nextBank[floor * floorCount + destination] = best;
+				nextFloor[floor * floorCount + destination] = rides[best] == 1 ? destination
+														   : transferFloor(serves, rides, best, floor, destination);
+			}
+		}
+	}
+
+	/**
+	 * Works out how many banks a passenger has to ride from each bank to get to a destination,
+	 * with a breadth-first search from the banks that serve it.
+	 * @param serves [in] which floors every bank serves.
+	 * @param destination [in] the floor to get to.
+	 * @param rides [out] the number of rides from every bank, 0 if it can't get there.
+	 */
+	private void countRides(boolean[][] serves, int destination, int[] rides)
+	{
+		Arrays.fill(rides, 0);
+		int[] queue = new int[names.length];
+		int size = 0;
+		for (int bank = 0; bank < names.length; bank++) {
+			if (serves[bank][destination]) {
+				rides[bank] = 1;
+				queue[size++] = bank;
+			}
+		}
+
+		for (int head = 0; head < size; head++) {
+			int bank = queue[head];
+			for (int other = 0; other < names.length; other++) {
+				if (rides[other] == 0 && shareFloor(serves, bank, other)) {
+					rides[other] = rides[bank] + 1;
+					queue[size++] = other;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Picks where to change from a bank to one with one ride less: the shared floor that keeps
+	 * the trip shortest, the lowest one on a tie.
+	 * @return the transfer floor.
+	 */
+	private int transferFloor(boolean[][] serves, int[] rides, int bank, int floor, int destination)
+	{
+		int best = -1;
+		for (int transfer : floors[bank]) {
+			if (!isTransferFloor(transfer)) {
+				continue;
+			}
+			for (int other = 0; other < names.length; other++) {
+				if (rides[other] == rides[bank] - 1 && serves[other][transfer]) {
+					if (best == -1 || distance(floor, transfer, destination) < distance(floor, best, destination)) {
+						best = transfer;
+					}
+					break;
+				}
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * @return the number of floors travelled going from floor to destination by way of transfer.
+	 */
+	private static int distance(int floor, int transfer, int destination)
+	{
+		return Math.abs(transfer - floor) + Math.abs(destination - transfer);
+	}
+
+	/**
+	 * @return whether or not two banks serve a floor in common.
+	 */
+	private boolean shareFloor(boolean[][] serves, int bank, int other)
+	{
+		for (int floor : floors[bank]) {
+			if (serves[other][floor]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the first bank that serves floor, -1 if none does.
+	 */
+	private static int bankAt(boolean[][] serves, int floor)
+	{
+		for (int bank = 0; bank < serves.length; bank++) {
+			if (serves[bank][floor]) {
+				return bank;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Parses a list of floors and floor ranges, e.g. "0,20-39".
+	 * @return the floors in the list, from the bottom up, without repeats.
+	 * @throws ConfigException if the list has a mistake in it or a floor is not in the building.
+	 */
+	private static int[] parseFloors(String fileName, int lineNumber, String text, int floorCount)
+	{
+		boolean[] listed = new boolean[floorCount];
+		for (String entry : text.split(",")) {
+			int dash = entry.indexOf('-');
+			int first = parseInt(fileName, lineNumber, dash == -1 ? entry : entry.substring(0, dash), "floor");
+			int last = dash == -1 ? first : parseInt(fileName, lineNumber, entry.substring(dash + 1), "floor");
+			if (first < 0 || last >= floorCount || last < first) {
+				throw new ConfigException(fileName, lineNumber, "\"" + entry + "\" is not in the building (Floors 0-" +
+										  (floorCount - 1) + ")");
+			}
+			for (int floor = first; floor <= last; floor++) {
+				listed[floor] = true;
+			}
+		}
+
+		int count = 0;
+		int[] bankFloors = new int[floorCount];
+		for (int floor = 0; floor < floorCount; floor++) {
+			if (listed[floor]) {
+				bankFloors[count++] = floor;
+			}
+		}
+		return Arrays.copyOf(bankFloors, count);
+	}
+
+	/**
+	 * @param fileName [in] the bank file, for the error message.
+	 * @param lineNumber [in] the line being read, for the error message.
+	 * @param text [in] the text to parse.
+	 * @param what [in] what the number is, for the error message.
+	 * @return the number in text.
+	 * @throws ConfigException if text is not a number.
+	 */
+	private static int parseInt(String fileName, int lineNumber, String text, String what)
+	{
+		try {
+			return Integer.parseInt(text.trim());
+		}
+		catch (NumberFormatException e) {
+			throw new ConfigException(fileName, lineNumber, "the " + what + " \"" + text.trim() + "\" is not a number");
+		}
+	}
+}
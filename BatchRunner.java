@@ -0,0 +1,343 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * Runs many independent simulations in parallel and reports the average results with 95% confidence intervals.
+ * Every run is a discrete-event simulation with its own BuildingManager and SimClock, so the runs share nothing
+ * and spread over every core of a fork-join pool. Logging is turned off for the batch.
+ * Usage: java BatchRunner [-runs N] [-threads T] [-config FILE] [-floors N] [-elevators LIST] [-capacity LIST]
+ * 						   [-dispatch LIST] [-parking NAME] [-day T] [-collective] [-kinematics FILE] [-traffic PROFILE] [-rate R]
+ * 						   [-seed S] [-resume FILE] [-check]
+ * 		- "-runs N" is the number of replications of every setting, 30 by default.
+ * 		- "-elevators", "-capacity" and "-dispatch" take comma separated lists, e.g. "-elevators 4,6,8",
+ * 		  and every combination of them is simulated.
+ * 		- Replication i of every setting uses seed S + i, so the settings are compared on the same traffic.
+ * 		  Without "-traffic" the config file is the only source of passengers and every replication is the same.
+ * 		- "-resume FILE" starts every run from a SimulationSnapshot, e.g. of a building warmed up to steady state,
+ * 		  instead of from the config file. The building size comes from the snapshot, and "-traffic" replaces the
+ * 		  snapshot's random traffic so the replications differ.
+ * 		- "-check" also runs every replication in threaded mode, and lists the ones that end up in a different
+ * 		  state than their discrete-event run. It exits with status 1 if there are any.
+ * The other options are the same as for Lab4.
+ */
+public class BatchRunner
+{
+	// "Mean Wait" and "p90 Wait" only count the passengers who boarded. "Wait Incl. Left" also counts
+	// the ones left waiting at the end, with how long they had waited by then.
+	private static final String[] RESULT_NAMES = { "Mean Wait", "Wait Incl. Left", "Left Waiting", "p90 Wait", "Mean Journey", "Arrived" };
+
+	// Two-sided 95% critical values of Student's t distribution for 1 to 30 degrees of freedom.
+	private static final double[] T_95 = {
+		12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+		2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+		2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042
+	};
+	// And for more degrees of freedom, up to infinity where it is the normal distribution's 1.96.
+	private static final int[] T_95_LARGE_DF = { 30, 40, 60, 120, Integer.MAX_VALUE };
+	private static final double[] T_95_LARGE = { 2.042, 2.021, 2.000, 1.980, 1.960 };
+
+	private String configFile = "ElevatorConfig.txt";
+	private String kinematicsFile = null;
+	private int floorCount = BuildingManager.DEFAULT_FLOOR_COUNT;
+	private boolean collectiveControl = false;
+	private String parking = "none";
+	private int dayLength = DemandForecaster.DEFAULT_DAY_LENGTH;
+	private TrafficGenerator.Profile traffic = null;
+	private double trafficRate = 0.1;
+	private long seed = 42;
+	private String resumeFile = null;
+	private boolean checkModes = false;
+	private ConcurrentLinkedQueue<String> mismatches = new ConcurrentLinkedQueue<String>();
+
+	public static void main(String[] args) throws InterruptedException, ExecutionException
+	{
+		BatchRunner runner = new BatchRunner();
+		int runs = 30;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int[] elevatorCounts = { ElevatorSimulation.DEFAULT_ELEVATORS };
+		int[] capacities = { Integer.MAX_VALUE };
+		String[] dispatches = { "lowest" };
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-runs") && i + 1 < args.length) {
+				runs = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-threads") && i + 1 < args.length) {
+				threads = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-config") && i + 1 < args.length) {
+				runner.configFile = args[++i];
+			}
+			else if (args[i].equals("-floors") && i + 1 < args.length) {
+				runner.floorCount = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-elevators") && i + 1 < args.length) {
+				elevatorCounts = parseInts(args[++i]);
+			}
+			else if (args[i].equals("-capacity") && i + 1 < args.length) {
+				capacities = parseInts(args[++i]);
+			}
+			else if (args[i].equals("-dispatch") && i + 1 < args.length) {
+				dispatches = args[++i].split(",");
+			}
+			else if (args[i].equals("-parking") && i + 1 < args.length) {
+				runner.parking = args[++i];
+			}
+			else if (args[i].equals("-day") && i + 1 < args.length) {
+				runner.dayLength = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-collective")) {
+				runner.collectiveControl = true;
+			}
+			else if (args[i].equals("-kinematics") && i + 1 < args.length) {
+				runner.kinematicsFile = args[++i];
+			}
+			else if (args[i].equals("-traffic") && i + 1 < args.length) {
+				runner.traffic = TrafficGenerator.profileForName(args[++i]);
+			}
+			else if (args[i].equals("-rate") && i + 1 < args.length) {
+				runner.trafficRate = Double.parseDouble(args[++i]);
+			}
+			else if (args[i].equals("-seed") && i + 1 < args.length) {
+				runner.seed = Long.parseLong(args[++i]);
+			}
+			else if (args[i].equals("-resume") && i + 1 < args.length) {
+				runner.resumeFile = args[++i];
+			}
+			else if (args[i].equals("-check")) {
+				runner.checkModes = true;
+			}
+		}
+
+		if (runner.resumeFile != null) {
+			// Every run resumes the same building.
+			int[] size;
+			try {
+				size = SimulationSnapshot.readBuildingSize(runner.resumeFile);
+			}
+			catch (IOException e) {
+				System.out.println("Cannot read snapshot file " + runner.resumeFile + ": " + e.getMessage());
+				return;
+			}
+			runner.floorCount = size[0];
+			elevatorCounts = new int[] { size[1] };
+		}
+
+		EventLog.setLevel(EventLog.Level.OFF);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+
+		// Submit every run of every setting at once so the pool stays busy.
+		List<Callable<double[]>> tasks = new ArrayList<Callable<double[]>>();
+		for (int elevatorCount : elevatorCounts) {
+			for (int capacity : capacities) {
+				for (String dispatch : dispatches) {
+					for (int run = 0; run < runs; run++) {
+						long runSeed = runner.seed + run;
+						tasks.add(() -> runner.runOnce(elevatorCount, capacity, dispatch, runSeed));
+					}
+				}
+			}
+		}
+
+		List<Future<double[]>> results;
+		try {
+			results = pool.invokeAll(tasks);
+		}
+		finally {
+			pool.shutdown();
+		}
+
+		System.out.printf("%-10s %-10s %-12s", "Elevators", "Capacity", "Dispatch");
+		for (String name : RESULT_NAMES) {
+			System.out.printf(" %22s", name);
+		}
+		System.out.println();
+
+		int next = 0;
+		for (int elevatorCount : elevatorCounts) {
+			for (int capacity : capacities) {
+				for (String dispatch : dispatches) {
+					double[][] settingResults = new double[runs][];
+					for (int run = 0; run < runs; run++) {
+						settingResults[run] = results.get(next++).get();
+					}
+
+					System.out.printf("%-10d %-10s %-12s", elevatorCount,
+									  capacity == Integer.MAX_VALUE ? "none" : String.valueOf(capacity), dispatch);
+					for (int i = 0; i < RESULT_NAMES.length; i++) {
+						System.out.print(" " + formatInterval(settingResults, i));
+					}
+					System.out.println();
+				}
+			}
+		}
+
+		if (runner.checkModes) {
+			System.out.println();
+			System.out.println("Threaded runs that differ from their discrete-event run: " + runner.mismatches.size());
+			for (String mismatch : runner.mismatches) {
+				System.out.println("  " + mismatch);
+			}
+			if (!runner.mismatches.isEmpty()) {
+				System.exit(1);
+			}
+		}
+	}
+
+	/**
+	 * Runs one simulation.
+	 * @param elevatorCount [in] the number of elevators.
+	 * @param capacity [in] the capacity of every elevator.
+	 * @param dispatch [in] the dispatch strategy name.
+	 * @param runSeed [in] the random seed of the traffic.
+	 * @return the results of the run, in the order of RESULT_NAMES.
+	 */
+	private double[] runOnce(int elevatorCount, int capacity, String dispatch, long runSeed) throws IOException
+	{
+		ElevatorSimulation es = simulate(elevatorCount, capacity, dispatch, runSeed, true);
+		if (checkModes) {
+			ElevatorSimulation threaded = simulate(elevatorCount, capacity, dispatch, runSeed, false);
+			if (!Arrays.equals(stateOf(es), stateOf(threaded))) {
+				mismatches.add(elevatorCount + " elevators, capacity " + (capacity == Integer.MAX_VALUE ? "none" : capacity) +
+							   ", " + dispatch + " dispatch, seed " + runSeed);
+			}
+		}
+
+		PassengerMetrics metrics = es.getPassengerMetrics();
+		BuildingManager manager = es.getBuildingManager();
+		int leftWaiting = 0;
+		for (int floor = 0; floor < floorCount; floor++) {
+			leftWaiting += manager.getWaitingPassengersAtFloor(floor);
+		}
+
+		LatencyHistogram waits = metrics.getTotalWait();
+		long waited = waits.getTotalCount();
+		double waitIncludingLeft = waited + leftWaiting == 0 ? 0 :
+			(waits.getMean() * waited + manager.getTotalWaitSoFar()) / (waited + leftWaiting);
+
+		return new double[] {
+			waits.getMean(),
+			waitIncludingLeft,
+			leftWaiting,
+			waits.getValueAtPercentile(90),
+			metrics.getTotalJourney().getMean(),
+			metrics.getTotalJourney().getTotalCount()
+		};
+	}
+
+	/**
+	 * Runs one simulation to the end.
+	 * @param discreteEvent [in] true for discrete-event mode, false for one thread per elevator without sleeping.
+	 * @return the finished simulation.
+	 */
+	private ElevatorSimulation simulate(int elevatorCount, int capacity, String dispatch, long runSeed, boolean discreteEvent)
+	{
+		ElevatorSimulation es = new ElevatorSimulation(floorCount, elevatorCount);
+		es.setResumeFile(resumeFile);
+		es.setDiscreteEvent(discreteEvent);
+		es.setSleepEnabled(false);
+		es.setConfigFile(configFile);
+		es.setKinematicsFile(kinematicsFile);
+		es.setCapacity(capacity);
+		es.setCollectiveControl(collectiveControl);
+		es.setDispatchStrategy(DispatchStrategy.forName(dispatch));
+		es.setParkingPolicy(ParkingPolicy.forName(parking));
+		es.setDayLength(dayLength);
+		es.setTraffic(traffic, trafficRate, runSeed);
+		es.start();
+		return es;
+	}
+
+	/**
+	 * @param es [in] a finished simulation.
+	 * @return the state of its building and elevators, the way a SimulationSnapshot writes them.
+	 */
+	private static byte[] stateOf(ElevatorSimulation es) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		BuildingManager manager = es.getBuildingManager();
+		manager.writeState(out);
+		for (int i = 0; i < manager.getElevatorCount(); i++) {
+			manager.getElevator(i).writeState(out);
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * @param results [in] the results of every run of a setting.
+	 * @param column [in] which result to summarize.
+	 * @return "mean +- half width" of the 95% confidence interval of the mean.
+	 */
+	private static String formatInterval(double[][] results, int column)
+	{
+		int n = results.length;
+		double sum = 0;
+		for (double[] run : results) {
+			sum += run[column];
+		}
+		double mean = sum / n;
+
+		double squares = 0;
+		for (double[] run : results) {
+			squares += (run[column] - mean) * (run[column] - mean);
+		}
+
+		double halfWidth = 0;
+		if (n > 1) {
+			halfWidth = criticalT(n - 1) * Math.sqrt(squares / (n - 1) / n);
+		}
+
+		return String.format("%12.2f +- %7.2f", mean, halfWidth);
+	}
+
+	/**
+	 * @param degrees [in] the degrees of freedom, at least 1.
+	 * @return the two-sided 95% critical value of Student's t distribution. Past 30 degrees of freedom
+	 * it is interpolated linearly in 1 / degrees between the T_95_LARGE entries, which is what tables assume.
+	 */
+	private static double criticalT(int degrees)
+	{
+		if (degrees <= T_95.length) {
+			return T_95[degrees - 1];
+		}
+
+		int i = 1;
+		while (degrees > T_95_LARGE_DF[i]) {
+			i++;
+		}
+		double low = 1.0 / T_95_LARGE_DF[i - 1];
+		double high = T_95_LARGE_DF[i] == Integer.MAX_VALUE ? 0 : 1.0 / T_95_LARGE_DF[i];
+		double share = (low - 1.0 / degrees) / (low - high);
+		return T_95_LARGE[i - 1] + share * (T_95_LARGE[i] - T_95_LARGE[i - 1]);
+	}
+
+	/**
+	 * @param list [in] comma separated numbers.
+	 * @return the numbers.
+	 */
+	private static int[] parseInts(String list)
+	{
+		String[] parts = list.split(",");
+		int[] numbers = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			numbers[i] = Integer.parseInt(parts[i].trim());
+		}
+		return numbers;
+	}
+}
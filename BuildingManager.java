@@ -1,4 +1,12 @@
-import java.util.concurrent.locks.Lock;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -11,22 +19,290 @@ import java.util.concurrent.locks.ReentrantLock;
  * Elevators tell the building manager that it is waiting for passenger pickup when it calls
  * requestFloorAccess(). The building manager makes sure that multiple elevators
  * are not heading to the same floor.
+ * 
+ * The state of the building floors is kept in flat arrays so that memory and scans stay
+ * linear in the size of the building:
+ * 		- totalDestinationRequests and passengerRequests are floor x destination matrices
+ * 		- arrivedPassengers is a floor x elevator matrix
+ * 		- approachingElevator holds one elevator ID per floor, -1 if none is approaching
+ * 		- reservedPassengers is a floor x destination matrix of the waiting passengers that elevators reserved
+ * 
+ * A busy floor can be served by several elevators at once. An elevator that claims a floor reserves
+ * as many of the waiting passengers as it has room for, per destination. If that fills it up and there are
+ * passengers left over, it hands the floor on: approachingElevator goes back to -1 so the next elevator
+ * is sent for the rest. Each elevator only boards its own reservation, plus the passengers nobody
+ * reserved if it is the floor's approaching elevator, and releases what is left of its reservation when it
+ * gets there. Without a capacity an elevator reserves everybody and a floor gets one elevator, like before.
+ * 
+ * A dispatch index is kept up to date as passengers spawn and get picked up, so that
+ * requestFloorAccess() is a bit scan instead of a scan over every floor and destination:
+ * 		- waitingPassengers holds the total number of passengers waiting at each floor
+ * 		- waitingUpPassengers holds the number of those passengers that are going up
+ * 		- reservedAtFloor holds the total number of reserved passengers at each floor
+ * 		- unassignedFloors has a bit set for every floor with unreserved passengers and no approaching elevator
+ * 
+ * Each passenger request slot also has a PassengerCohortQueue that remembers when its passengers
+ * spawned. The cohorts move into the elevator when passengers board, so PassengerMetrics can
+ * record every passenger's wait and journey time. The cohort queues of a floor are guarded by a
+ * ReentrantLock instead of synchronized, so elevators running on virtual threads never pin their carrier.
+ * The time spent waiting for those locks is added up for SimulationMetrics.
+ * 
+ * Reports and monitoring read an immutable BuildingView instead of the live counters. The main thread
+ * captures a new view between ticks, but only after a reader asked for one since the last capture.
+ * Readers that poll now and then use awaitFreshView(), so they don't get the view their last poll asked for.
+ * 
+ * Which floor an elevator is sent to is decided by a DispatchStrategy, lowest floor first by default.
+ * Where an idle elevator waits is decided by an optional ParkingPolicy, using the DemandForecaster
+ * that learns from every spawnPassengers() call.
+ * 
+ * Every slot is an atomic counter, so threads working on different floors never contend. The counters,
+ * the dispatch index and approachingElevator are read and updated without a lock, and an elevator claims
+ * a floor by swapping its approachingElevator from -1. unassignedFloors is only a hint: requestFloorAccess()
+ * drops bits that turn out to be stale. Only what has to change together with the cohorts takes the floor's
+ * cohort lock: spawning, boarding and clearing passengers, and making and releasing reservations.
+ * The lock is per floor, so only elevators working on the same floor ever wait for each other.
  */
-public class BuildingManager {	
-	public static final int FLOOR_COUNT = 5;
-	private BuildingFloor[] floors;
-	private Lock passengerRequestsLock;
+public class BuildingManager implements PassengerSink {	
+	public static final int DEFAULT_FLOOR_COUNT = 5;
+	
+	private int floorCount;
+	private int elevatorCount;
+	private AtomicIntegerArray totalDestinationRequests;
+	private AtomicIntegerArray arrivedPassengers;
+	private AtomicIntegerArray passengerRequests;
+	private AtomicIntegerArray approachingElevator;
+	private AtomicIntegerArray reservedPassengers;
+	private AtomicIntegerArray reservedAtFloor;
+	private AtomicIntegerArray waitingPassengers;
+	private AtomicIntegerArray waitingUpPassengers;
+	private AtomicBitSet unassignedFloors;
+	private PassengerCohortQueue[] waitingCohorts;
+	private ReentrantLock[] cohortLocks;
+	private LongAdder cohortLockWaitNanos;
+	private PassengerMetrics passengerMetrics;
+	private Elevator[] elevators;
+	private DispatchStrategy dispatchStrategy;
+	private TravelTimeModel travelTimeModel;
+	private ArrivalListener arrivalListener;
+	private ParkingPolicy parkingPolicy;
+	private DemandForecaster demandForecaster;
+	private SimClock clock;
+	private volatile BuildingView view;
+	private AtomicBoolean viewRequested;
+	private long viewVersion;
 	
 	/**
-	 * Default constructor that initializes floors to a new BuildingFloor.
+	 * Default constructor for a building with the default amount of floors and elevators.
 	 */
 	public BuildingManager() {
-		floors = new BuildingFloor[5];
-		for (int i = 0; i < floors.length; i++) {
-			floors[i] = new BuildingFloor();
+		this(DEFAULT_FLOOR_COUNT, ElevatorSimulation.DEFAULT_ELEVATORS);
+	}
+	
+	/**
+	 * Constructor that sizes the building.
+	 * When approachingElevator = -1, there is no elevator approaching the floor.
+	 * @param iFloorCount [in] the number of building floors.
+	 * @param iElevatorCount [in] the number of elevators serving the building.
+	 */
+	public BuildingManager(int iFloorCount, int iElevatorCount) {
+		clock = new SimClock();
+		floorCount = iFloorCount;
+		elevatorCount = iElevatorCount;
+		
+		totalDestinationRequests = new AtomicIntegerArray(floorCount * floorCount);
+		arrivedPassengers = new AtomicIntegerArray(floorCount * elevatorCount);
+		passengerRequests = new AtomicIntegerArray(floorCount * floorCount);
+		approachingElevator = new AtomicIntegerArray(floorCount);
+		for (int i = 0; i < floorCount; i++) {
+			approachingElevator.set(i, -1);
+		}
+		reservedPassengers = new AtomicIntegerArray(floorCount * floorCount);
+		reservedAtFloor = new AtomicIntegerArray(floorCount);
+		waitingPassengers = new AtomicIntegerArray(floorCount);
+		waitingUpPassengers = new AtomicIntegerArray(floorCount);
+		unassignedFloors = new AtomicBitSet(floorCount);
+		waitingCohorts = new PassengerCohortQueue[floorCount * floorCount];
+		for (int i = 0; i < waitingCohorts.length; i++) {
+			waitingCohorts[i] = new PassengerCohortQueue();
+		}
+		cohortLocks = new ReentrantLock[floorCount];
+		for (int i = 0; i < floorCount; i++) {
+			cohortLocks[i] = new ReentrantLock();
+		}
+		cohortLockWaitNanos = new LongAdder();
+		passengerMetrics = new PassengerMetrics(floorCount, elevatorCount);
+		elevators = new Elevator[elevatorCount];
+		dispatchStrategy = new LowestFloorDispatch();
+		travelTimeModel = TravelTimeModel.classic(floorCount);
+		demandForecaster = new DemandForecaster(floorCount);
+		viewRequested = new AtomicBoolean(true);
+	}
+	
+	/**
+	 * Sets the strategy used to pick floors in requestFloorAccess().
+	 * Should be set before the simulation starts.
+	 * @param strategy [in] the dispatch strategy.
+	 */
+	public void setDispatchStrategy(DispatchStrategy strategy) {
+		dispatchStrategy = strategy;
+		dispatchStrategy.reset(this);
+	}
+	
+	/**
+	 * Sets how long the elevators take to travel and stop.
+	 * Should be set before the simulation starts.
+	 * @param model [in] the travel time model.
+	 */
+	public void setTravelTimeModel(TravelTimeModel model) {
+		travelTimeModel = model;
+	}
+	
+	/**
+	 * @return how long the elevators take to travel and stop.
+	 */
+	public TravelTimeModel getTravelTimeModel() {
+		return travelTimeModel;
+	}
+	
+	/**
+	 * Sets where idle elevators that aren't given a floor go to wait. Should be set before the simulation starts.
+	 * @param policy [in] the parking policy, null for elevators to stay where they are.
+	 */
+	public void setParkingPolicy(ParkingPolicy policy) {
+		parkingPolicy = policy;
+	}
+	
+	/**
+	 * @return the parking policy, null if elevators stay where they are.
+	 */
+	public ParkingPolicy getParkingPolicy() {
+		return parkingPolicy;
+	}
+	
+	/**
+	 * Starts the DemandForecaster over with a new day length. Should be set before the simulation starts.
+	 * @param dayLength [in] the ticks the traffic takes to repeat itself.
+	 */
+	public void setDayLength(int dayLength) {
+		demandForecaster = new DemandForecaster(floorCount, dayLength);
+	}
+	
+	/**
+	 * @return the forecast of where passengers spawn, learned from spawnPassengers().
+	 */
+	public DemandForecaster getDemandForecaster() {
+		return demandForecaster;
+	}
+	
+	/**
+	 * Sets who is told about passengers as they get off. Should be set before the simulation starts.
+	 * @param listener [in] the listener, null for nobody.
+	 */
+	public void setArrivalListener(ArrivalListener listener) {
+		arrivalListener = listener;
+	}
+	
+	/**
+	 * @return the wait and journey times of the passengers.
+	 */
+	public PassengerMetrics getPassengerMetrics() {
+		return passengerMetrics;
+	}
+	
+	/**
+	 * Thread safe.
+	 * @return the total nanoseconds elevator threads spent waiting for the cohort lock of a floor.
+	 */
+	public long getCohortLockWaitNanos() {
+		return cohortLockWaitNanos.sum();
+	}
+	
+	/**
+	 * @return the simulation clock of this building, shared by its elevators.
+	 */
+	@Override
+	public SimClock getClock() {
+		return clock;
+	}
+	
+	/**
+	 * Thread safe and never blocks. Asks for a fresh view at the next tick boundary.
+	 * @return the latest view of the building, at most a tick old while the simulation runs.
+	 * 		   null if no view was captured yet.
+	 */
+	public BuildingView getView() {
+		// Only write the flag when it changes, so readers polling at a high rate don't fight over its cache line.
+		if (!viewRequested.get()) {
+			viewRequested.set(true);
+		}
+		return view;
+	}
+	
+	/**
+	 * Thread safe. Asks for a fresh view and waits for the next tick boundary to capture it.
+	 * Only the calling thread waits, the elevators never do.
+	 * @param timeoutMillis [in] the longest to wait, e.g. if the simulation is over or sleeping between ticks.
+	 * @return the fresh view, or the latest one if none was captured in time.
+	 */
+	public BuildingView awaitFreshView(long timeoutMillis) {
+		BuildingView current = getView();
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		while (view == current && System.nanoTime() - deadline < 0) {
+			LockSupport.parkNanos(50000);
 		}
 		
-		passengerRequestsLock = new ReentrantLock();
+		return view;
+	}
+	
+	/**
+	 * Captures a new view if anyone asked for one since the last capture.
+	 * Only called by the main thread between ticks, while every elevator is parked.
+	 */
+	public void publishViewIfRequested() {
+		if (viewRequested.get()) {
+			publishView();
+		}
+	}
+	
+	/**
+	 * Captures a new view. Only called by the main thread between ticks, while every elevator is parked.
+	 * @return the new view.
+	 */
+	public BuildingView publishView() {
+		viewRequested.set(false);
+		view = new BuildingView(this, ++viewVersion);
+		return view;
+	}
+	
+	/**
+	 * Called by each elevator when it is created so dispatch strategies can see where it is.
+	 * @param elevatorID [in] the elevator's ID.
+	 * @param elevator [in] the elevator.
+	 */
+	public void registerElevator(int elevatorID, Elevator elevator) {
+		elevators[elevatorID] = elevator;
+	}
+	
+	/**
+	 * @param elevatorID [in] the elevator's ID.
+	 * @return the elevator, null if it was never registered.
+	 */
+	public Elevator getElevator(int elevatorID) {
+		return elevators[elevatorID];
+	}
+	
+	/**
+	 * @return the number of building floors.
+	 */
+	public int getFloorCount() {
+		return floorCount;
+	}
+	
+	/**
+	 * @return the number of elevators serving the building.
+	 */
+	public int getElevatorCount() {
+		return elevatorCount;
 	}
 	
 	/**
@@ -36,21 +312,39 @@ public class BuildingManager {
 	 * @param goingToFloor [in] building floor the passengers wish to go to.
 	 * @param numPassengers [in] the number of passengers.
 	 */
+	@Override
 	public void spawnPassengers(int floor, int goingToFloor, int numPassengers) {
-		// Gather the current passengers that are waiting for a floor.
-		int[] previousPassengerRequests = floors[floor].getPassengerRequests();
+		// Remember when they spawned. The cohort is queued before the count goes up,
+		// so an elevator that sees the passengers always finds their cohort.
+		PassengerCohortQueue cohorts = waitingCohorts[floor * floorCount + goingToFloor];
+		lockCohorts(floor);
+		try {
+			cohorts.add(clock.getTime(), floor, numPassengers);
+		}
+		finally {
+			cohortLocks[floor].unlock();
+		}
 		
 		// Adding more passengers that are waiting at the same floor.
-		passengerRequestsLock.lock();
-		previousPassengerRequests[goingToFloor] += numPassengers;
-		passengerRequestsLock.unlock();
-		// Why do we need this lock?
-		// When the elevator clears the passengerRequests, it sets it to 0.
-		// If we do += while another thread is manipulating the data, we'll have bad values.
+		// The slot is added to atomically, so an elevator draining it at the same time
+		// either takes these passengers or leaves them for the next pickup.
+		passengerRequests.getAndAdd(floor * floorCount + goingToFloor, numPassengers);
+		if (goingToFloor > floor) {
+			waitingUpPassengers.getAndAdd(floor, numPassengers);
+		}
+		waitingPassengers.getAndAdd(floor, numPassengers);
+		
+		// waitingPassengers is updated before approachingElevator is checked, and
+		// clearApproachingElevator() does the opposite, so one of the two always sets the bit.
+		if (!isElevatorApproaching(floor)) {
+			unassignedFloors.set(floor);
+		}
 		
 		updateTotalDestinationRequests(goingToFloor, floor, numPassengers);
+		demandForecaster.recordSpawn(clock.getTime(), floor, numPassengers);
 		
-		SimClock.printWithTime("There are " + numPassengers + " passengers on Floor " + floor + " requesting to go to Floor " + goingToFloor + ".");
+		EventLog.passengersSpawned(clock.getTime(), floor, goingToFloor, numPassengers);
+		EventTrace.record(clock.getTime(), EventTrace.SPAWNED, -1, floor, goingToFloor, numPassengers);
 	}
 	
 	/**
@@ -61,46 +355,330 @@ public class BuildingManager {
 	 * @return the building floor the elevator should go to.
 	 * 		   -1 if there are no valid requests.
 	 */
-	public synchronized int requestFloorAccess(int elevatorID) {
-		// DATA RACE:
-		// * BuildingFloor.approachingElevator
-		
-		// Iterate through the floors
-		for (int i = 0; i < FLOOR_COUNT; i++) {
-			// If the floor has requests
-			if (areThereElevatorRequests(i)) {
-				// And there is no other elevator approaching
-				if (!isElevatorApproaching(i)) {
-					// Set this elevator to pickup the passengers.
-					setPickupRequest(i, elevatorID);
-					return i;
-				}
+	public int requestFloorAccess(int elevatorID) {
+		// Ask the dispatch strategy for a floor that has requests and no other elevator approaching.
+		for (int floor = dispatchStrategy.selectFloor(this, elevatorID); floor != -1; 
+			 floor = dispatchStrategy.selectFloor(this, elevatorID)) {
+			// Set this elevator to pickup the passengers, unless another elevator got there first.
+			if (claimFloor(floor, elevatorID)) {
+				return floor;
 			}
+			
+			// The bit was stale.
+			refreshUnassignedFloor(floor);
 		}
 		
 		return -1;
 	}
 	
 	/**
-	 * Clears the passenger requests at building floor going to a floor.
-	 * We lock the passenger requests so it doesn't interfere with spawning.
+	 * Makes an elevator the approaching elevator of a floor, if the floor has unreserved
+	 * passengers and no other elevator is approaching it, and reserves the passengers it has room for.
+	 * If the elevator is full with its reservation, it hands the floor on to the next elevator right away.
+	 * Used by elevators that pick up passengers on their way.
+	 * @param floor [in] specific building floor.
+	 * @param elevatorID [in] the elevator ID that wants to pick up at the floor.
+	 * @return whether or not the elevator got the floor.
+	 */
+	public boolean claimFloor(int floor, int elevatorID) {
+		if (!hasUnreservedPassengers(floor) || !setPickupRequest(floor, elevatorID)) {
+			return false;
+		}
+		
+		Elevator elevator = elevators[elevatorID];
+		dispatchStrategy.floorClaimed(this, elevatorID, floor, elevator.getDirection());
+		lockCohorts(floor);
+		try {
+			// An elevator without a direction boards the passengers going up first when it gets there, like arriveForPickup().
+			if (elevator.getDirection() != 0) {
+				reservePassengers(elevator, elevatorID, floor, elevator.getDirection());
+			}
+			else if (reservePassengers(elevator, elevatorID, floor, 1) == 0) {
+				reservePassengers(elevator, elevatorID, floor, -1);
+			}
+		}
+		finally {
+			cohortLocks[floor].unlock();
+		}
+		
+		if (elevator.getFreeCapacity() <= 0 && hasUnreservedPassengers(floor)) {
+			approachingElevator.set(floor, -1);
+			EventTrace.record(clock.getTime(), EventTrace.RELEASED, -1, floor, -1, 0);
+			unassignedFloors.set(floor);
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Releases what is left of an elevator's reservation at a floor, once it has boarded there.
+	 * The released passengers go back up for dispatch unless an elevator is approaching the floor.
+	 * @param elevatorID [in] the elevator that arrived.
+	 * @param floor [in] the floor it arrived at.
+	 */
+	public void releaseReservations(int elevatorID, int floor) {
+		PickupReservations reservations = elevators[elevatorID].getReservations();
+		lockCohorts(floor);
+		try {
+			for (int i = reservations.size() - 1; i >= 0; i--) {
+				if (reservations.getFloor(i) == floor) {
+					release(elevatorID, reservations, i);
+				}
+			}
+		}
+		finally {
+			cohortLocks[floor].unlock();
+		}
+		
+		if (hasUnreservedPassengers(floor) && !isElevatorApproaching(floor)) {
+			unassignedFloors.set(floor);
+		}
+	}
+	
+	/**
+	 * Asks the dispatch strategy whether passengers at a pickup floor should board an elevator.
+	 * @param elevatorID [in] the elevator picking up passengers.
+	 * @param floor [in] the floor the passengers are waiting on.
+	 * @param goingToFloor [in] the floor the passengers want to go to.
+	 * @return whether or not the passengers board the elevator.
+	 */
+	public boolean shouldBoard(int elevatorID, int floor, int goingToFloor) {
+		return dispatchStrategy.shouldBoard(this, elevatorID, floor, goingToFloor);
+	}
+	
+	/**
+	 * @param fromFloor [in] the first floor to check.
+	 * @return the first floor at or above fromFloor with waiting passengers and no approaching elevator.
+	 * 		   -1 if there is none.
+	 */
+	public int nextUnassignedFloor(int fromFloor) {
+		return unassignedFloors.nextSetBit(fromFloor);
+	}
+	
+	/**
+	 * @param fromFloor [in] the first floor to check.
+	 * @return the first floor at or below fromFloor with waiting passengers and no approaching elevator.
+	 * 		   -1 if there is none.
+	 */
+	public int previousUnassignedFloor(int fromFloor) {
+		return unassignedFloors.previousSetBit(fromFloor);
+	}
+	
+	/**
+	 * Clears the passenger requests at building floor going to a floor, reserved or not,
+	 * e.g. to empty the building between benchmark iterations. Every elevator's reservation
+	 * of them is released first, so no elevator counts on passengers who are gone.
+	 * The slot is drained atomically so it doesn't interfere with spawning.
 	 * @param buildingFloor [in] the building floor the passengers spawned.
 	 * @param goingToFloor [in] the floor the passengers wished to go to.
+	 * @return the number of passengers that were cleared.
 	 */
-	public void clearPassengerRequests(int buildingFloor, int goingToFloor) {
-		passengerRequestsLock.lock();
-		floors[buildingFloor].getPassengerRequests()[goingToFloor] = 0;
-		passengerRequestsLock.unlock();
+	public int clearPassengerRequests(int buildingFloor, int goingToFloor) {
+		int index = buildingFloor * floorCount + goingToFloor;
+		int cleared;
+		lockCohorts(buildingFloor);
+		try {
+			for (int i = 0; i < elevators.length; i++) {
+				if (elevators[i] == null) {
+					continue;
+				}
+				PickupReservations reservations = elevators[i].getReservations();
+				int reservation = reservations.indexOf(buildingFloor, goingToFloor);
+				if (reservation != -1) {
+					release(i, reservations, reservation);
+				}
+			}
+			
+			// Passengers spawning right now have their cohort queued before they are counted, so it is left for them.
+			cleared = passengerRequests.getAndSet(index, 0);
+			for (int remaining = cleared; remaining > 0; ) {
+				remaining -= waitingCohorts[index].poll(remaining);
+			}
+		}
+		finally {
+			cohortLocks[buildingFloor].unlock();
+		}
+		if (goingToFloor > buildingFloor) {
+			waitingUpPassengers.getAndAdd(buildingFloor, -cleared);
+		}
+		waitingPassengers.getAndAdd(buildingFloor, -cleared);
+		refreshUnassignedFloor(buildingFloor);
+		return cleared;
+	}
+	
+	/**
+	 * Takes up to maxPassengers of the passenger requests at building floor going to a floor.
+	 * The elevator takes its own reservation first. It can also take the passengers nobody reserved
+	 * if it is the floor's approaching elevator, so no two elevators boarding at once ever take the same ones.
+	 * Whoever doesn't fit keeps waiting, and the floor goes back up for dispatch once the
+	 * approaching elevator is cleared.
+	 * The longest waiting passengers are taken first. Their cohorts move to boardingCohorts
+	 * and their wait time is recorded.
+	 * @param elevatorID [in] the elevator the passengers are boarding.
+	 * @param buildingFloor [in] the building floor the passengers spawned.
+	 * @param goingToFloor [in] the floor the passengers wish to go to.
+	 * @param maxPassengers [in] the most passengers that can be taken.
+	 * @param boardingCohorts [out] the elevator's cohorts for goingToFloor.
+	 * @return the number of passengers that were taken.
+	 */
+	public int takePassengerRequests(int elevatorID, int buildingFloor, int goingToFloor, int maxPassengers,
+									 PassengerCohortQueue boardingCohorts) {
+		int index = buildingFloor * floorCount + goingToFloor;
+		PickupReservations reservations = elevators[elevatorID].getReservations();
+		PassengerCohortQueue cohorts = waitingCohorts[index];
+		int taken;
+		// Reserved passengers are only ever boarded by their own elevator, so elevators boarding at the same
+		// floor in the same tick get the same passengers whatever order they run in.
+		lockCohorts(buildingFloor);
+		try {
+			int reservation = reservations.indexOf(buildingFloor, goingToFloor);
+			int allowance = reservation == -1 ? 0 : reservations.getCount(reservation);
+			if (approachingElevator.get(buildingFloor) == elevatorID) {
+				allowance += Math.max(passengerRequests.get(index) - reservedPassengers.get(index), 0);
+			}
+			
+			int waiting;
+			// Retry if passengers spawned in between.
+			do {
+				waiting = passengerRequests.get(index);
+				taken = Math.min(Math.min(waiting, allowance), maxPassengers);
+			} while (taken > 0 && !passengerRequests.compareAndSet(index, waiting, waiting - taken));
+			
+			// The reserved passengers board first, the rest come from the ones nobody reserved.
+			int fromReservation = 0;
+			if (reservation != -1 && taken > 0) {
+				fromReservation = Math.min(taken, reservations.getCount(reservation));
+				movePassengers(elevatorID, buildingFloor, reservations.getCohorts(reservation), boardingCohorts, fromReservation);
+				unreserve(buildingFloor, goingToFloor, fromReservation);
+				reservations.reduce(reservation, fromReservation);
+			}
+			movePassengers(elevatorID, buildingFloor, cohorts, boardingCohorts, taken - fromReservation);
+		}
+		finally {
+			cohortLocks[buildingFloor].unlock();
+		}
+		
+		if (goingToFloor > buildingFloor) {
+			waitingUpPassengers.getAndAdd(buildingFloor, -taken);
+		}
+		waitingPassengers.getAndAdd(buildingFloor, -taken);
+		return taken;
+	}
+	
+	/**
+	 * Makes an elevator the approaching elevator of a floor no matter what. Used by TraceReplay,
+	 * where the trace already says which elevator got the floor.
+	 * @param floor [in] specific building floor.
+	 * @param elevatorID [in] the elevator ID that is approaching the floor.
+	 */
+	public void restoreApproachingElevator(int floor, int elevatorID) {
+		approachingElevator.set(floor, elevatorID);
+		unassignedFloors.clear(floor);
+	}
+	
+	/**
+	 * Reserves passengers for an elevator no matter what. Used by TraceReplay,
+	 * where the trace already says which passengers each elevator reserved.
+	 * @param elevatorID [in] the elevator reserving the passengers.
+	 * @param floor [in] the floor the passengers are waiting on.
+	 * @param goingToFloor [in] the floor the passengers are going to.
+	 * @param count [in] the number of passengers.
+	 */
+	public void restoreReservation(int elevatorID, int floor, int goingToFloor, int count) {
+		lockCohorts(floor);
+		try {
+			reserve(elevatorID, floor, goingToFloor, count);
+		}
+		finally {
+			cohortLocks[floor].unlock();
+		}
+	}
+	
+	/**
+	 * Releases what is left of one of an elevator's reservations. Used by TraceReplay.
+	 * @param elevatorID [in] the elevator that made the reservation.
+	 * @param floor [in] the floor the passengers are waiting on.
+	 * @param goingToFloor [in] the floor the passengers are going to.
+	 */
+	public void restoreRelease(int elevatorID, int floor, int goingToFloor) {
+		PickupReservations reservations = elevators[elevatorID].getReservations();
+		lockCohorts(floor);
+		try {
+			int reservation = reservations.indexOf(floor, goingToFloor);
+			if (reservation != -1) {
+				release(elevatorID, reservations, reservation);
+			}
+		}
+		finally {
+			cohortLocks[floor].unlock();
+		}
+	}
+	
+	/**
+	 * @param floor [in] building floor of the passenger requests.
+	 * @param goingToFloor [in] the floor the passengers wish to go to.
+	 * @return the number of passengers waiting at floor to go to goingToFloor.
+	 * spawnPassengers(), takePassengerRequests() and clearPassengerRequests() should be used to manipulate data.
+	 */
+	public int getPassengerRequests(int floor, int goingToFloor) {
+		return passengerRequests.get(floor * floorCount + goingToFloor);
 	}
 	
 	/**
 	 * @param floor [in] building floor of the passenger requests.
-	 * @return the passengerRequests at a certain floor.
-	 * Do not write into this data. spawnPassengers() and clearPassengerRequests() should be used to manipulate data.
+	 * @return the total number of passengers waiting at floor.
+	 */
+	public int getWaitingPassengersAtFloor(int floor) {
+		return waitingPassengers.get(floor);
+	}
+	
+	/**
+	 * Adds up how long the passengers still waiting have waited so far, reserved or not,
+	 * e.g. to count the ones that never boarded at the end of a run.
+	 * @return the total ticks waited, up to the current SimClock time.
+	 */
+	public long getTotalWaitSoFar() {
+		int time = clock.getTime();
+		long total = 0;
+		for (int floor = 0; floor < floorCount; floor++) {
+			lockCohorts(floor);
+			try {
+				for (int goingToFloor = 0; goingToFloor < floorCount; goingToFloor++) {
+					total += waitingCohorts[floor * floorCount + goingToFloor].getTotalWait(time);
+				}
+				for (Elevator elevator : elevators) {
+					PickupReservations reservations = elevator.getReservations();
+					for (int i = 0; i < reservations.size(); i++) {
+						if (reservations.getFloor(i) == floor) {
+							total += reservations.getCohorts(i).getTotalWait(time);
+						}
+					}
+				}
+			}
+			finally {
+				cohortLocks[floor].unlock();
+			}
+		}
+		
+		return total;
+	}
+	
+	/**
+	 * @param floor [in] building floor of the passenger requests.
+	 * @param direction [in] +1 for passengers going up, -1 for passengers going down.
+	 * @return the number of passengers waiting at floor to go in direction.
+	 */
+	public int getWaitingPassengersGoing(int floor, int direction) {
+		int up = waitingUpPassengers.get(floor);
+		return direction > 0 ? up : waitingPassengers.get(floor) - up;
+	}
+	
+	/**
+	 * @param floor [in] building floor of the passenger requests.
+	 * @return a copy of the passengerRequests at a certain floor, indexed by destination floor.
 	 */
 	public int[] getPassengerRequestsAtFloor(int floor) {
-		// This method will only be used by the identified approaching elevator for a building floor.
-		return floors[floor].getPassengerRequests();
+		return copyRow(passengerRequests, floor, floorCount);
 	}
 	
 	/**
@@ -110,7 +688,12 @@ public class BuildingManager {
 	public void clearApproachingElevator(int floor) {
 		// Precondition that if the value isn't -1
 		// there is no possible way that any other thread will want to use this method.
-		floors[floor].setApproachingElevator(-1);
+		approachingElevator.set(floor, -1);
+		EventTrace.record(clock.getTime(), EventTrace.RELEASED, -1, floor, -1, 0);
+		// Passengers that were left behind make the floor available to other elevators again.
+		if (hasUnreservedPassengers(floor)) {
+			unassignedFloors.set(floor);
+		}
 	}
 	
 	/**
@@ -119,12 +702,21 @@ public class BuildingManager {
 	 * @param elevatorID [in] the elevator id that is dropping off passengers.
 	 * @param numberOfPassengersDroppedOff [in] the amount of passengers.
 	 */
-	public synchronized void updateArrivedPassengers(int currentFloor, int elevatorID, int numberOfPassengersDroppedOff) {
-		int newTotalArrivedPassengers;
-		newTotalArrivedPassengers = floors[currentFloor].getTotalArrivedPassengers()[elevatorID] 
-									+ numberOfPassengersDroppedOff;
-		floors[currentFloor].setArrivedPassengers(elevatorID, newTotalArrivedPassengers);
-		
+	public void updateArrivedPassengers(int currentFloor, int elevatorID, int numberOfPassengersDroppedOff) {
+		arrivedPassengers.getAndAdd(currentFloor * elevatorCount + elevatorID, numberOfPassengersDroppedOff);
+	}
+	
+	/**
+	 * Passes a cohort of passengers that got off on to the ArrivalListener, if there is one.
+	 * @param floor [in] the floor the passengers got off at.
+	 * @param originFloor [in] the floor they spawned on.
+	 * @param spawnTime [in] the SimClock time they spawned.
+	 * @param count [in] the number of passengers.
+	 */
+	public void passengersArrived(int floor, int originFloor, int spawnTime, int count) {
+		if (arrivalListener != null) {
+			arrivalListener.passengersArrived(floor, originFloor, spawnTime, count);
+		}
 	}
 	
 	/**
@@ -134,25 +726,23 @@ public class BuildingManager {
 	 * @param numPassengers [in] the amount of passengers.
 	 */
 	public void updateTotalDestinationRequests(int destinationFloor, int buildingFloor, int numPassengers) {
-		int totalDestinationRequests = floors[buildingFloor].getTotalDestinationRequests()[destinationFloor];
-		totalDestinationRequests += numPassengers;
-		floors[buildingFloor].setTotalDestinationRequests(destinationFloor, totalDestinationRequests);
+		totalDestinationRequests.getAndAdd(buildingFloor * floorCount + destinationFloor, numPassengers);
 	}
 	
 	/**
 	 * @param floor [in] specific building floor.
-	 * @return the total arrived passengers from floor.
+	 * @return a copy of the total arrived passengers from floor, indexed by elevator ID.
 	 */
 	public int[] getArrivedPassengersAtFloor(int floor) {
-		return floors[floor].getTotalArrivedPassengers();
+		return copyRow(arrivedPassengers, floor, elevatorCount);
 	}
 	
 	/**
 	 * @param floor [in] specific building floor.
-	 * @return the total destination requests for a certain floor.
+	 * @return a copy of the total destination requests for a certain floor, indexed by destination floor.
 	 */
 	public int[] getTotalDestinationRequestsAtFloor(int floor) {
-		return floors[floor].getTotalDestinationRequests();
+		return copyRow(totalDestinationRequests, floor, floorCount);
 	}
 	
 	/**
@@ -160,30 +750,226 @@ public class BuildingManager {
 	 * @return the approaching elevator for floor.
 	 */
 	public int getApproachingElevatorAtFloor(int floor) {
-		return floors[floor].getApproachingElevator();
+		return approachingElevator.get(floor);
+	}
+	
+	/**
+	 * Writes the state of every floor, the passenger metrics and the dispatch strategy's state
+	 * for a SimulationSnapshot. The elevators must be parked between ticks.
+	 * @param out [in] the snapshot stream.
+	 */
+	public void writeState(DataOutputStream out) throws IOException {
+		writeArray(out, totalDestinationRequests);
+		writeArray(out, arrivedPassengers);
+		writeArray(out, passengerRequests);
+		writeArray(out, approachingElevator);
+		writeArray(out, reservedPassengers);
+		writeArray(out, waitingPassengers);
+		writeArray(out, waitingUpPassengers);
+		for (PassengerCohortQueue cohorts : waitingCohorts) {
+			cohorts.writeState(out);
+		}
+		passengerMetrics.writeState(out);
+		demandForecaster.writeState(out);
+		
+		// The strategy's state is written with its length, so a snapshot can be resumed with another strategy.
+		ByteArrayOutputStream strategyState = new ByteArrayOutputStream();
+		dispatchStrategy.writeState(new DataOutputStream(strategyState));
+		out.writeUTF(dispatchStrategy.getClass().getName());
+		out.writeInt(strategyState.size());
+		strategyState.writeTo(out);
+	}
+	
+	/**
+	 * Replaces the state of every floor with the one written by writeState() and rebuilds the dispatch index.
+	 * The dispatch strategy's state is only read back if the snapshot was written with the same strategy,
+	 * otherwise the strategy starts over.
+	 * @param in [in] the snapshot stream.
+	 */
+	public void readState(DataInputStream in) throws IOException {
+		readArray(in, totalDestinationRequests);
+		readArray(in, arrivedPassengers);
+		readArray(in, passengerRequests);
+		readArray(in, approachingElevator);
+		readArray(in, reservedPassengers);
+		for (int floor = 0; floor < floorCount; floor++) {
+			int reserved = 0;
+			for (int i = 0; i < floorCount; i++) {
+				reserved += reservedPassengers.get(floor * floorCount + i);
+			}
+			reservedAtFloor.set(floor, reserved);
+		}
+		readArray(in, waitingPassengers);
+		readArray(in, waitingUpPassengers);
+		for (PassengerCohortQueue cohorts : waitingCohorts) {
+			cohorts.readState(in);
+		}
+		passengerMetrics.readState(in);
+		demandForecaster.readState(in);
+		
+		String strategyName = in.readUTF();
+		int strategyLength = in.readInt();
+		if (strategyName.equals(dispatchStrategy.getClass().getName())) {
+			dispatchStrategy.readState(this, in);
+		}
+		else {
+			in.skipNBytes(strategyLength);
+			dispatchStrategy.reset(this);
+		}
+		
+		for (int floor = 0; floor < floorCount; floor++) {
+			refreshUnassignedFloor(floor);
+		}
 	}
 	
 	/**
 	 * @param floor [in] specific building floor.
-	 * @return whether or not a building floor has passenger requests.
+	 * @return whether or not a building floor has passenger requests that no elevator reserved.
 	 */
-	private boolean areThereElevatorRequests(int floor) {
-		int temp = 0;
-		for (int i = 0; i < floors[floor].getPassengerRequests().length; i++) {
-			
-			temp += floors[floor].getPassengerRequests()[i];
+	private boolean hasUnreservedPassengers(int floor) {
+		return waitingPassengers.get(floor) > reservedAtFloor.get(floor);
+	}
+	
+	/**
+	 * Reserves the unreserved passengers at a floor going in one direction for an elevator, nearest destination
+	 * first, until it has no room left. Only passengers the dispatch strategy lets on are reserved.
+	 * The caller holds the floor's lock.
+	 * @param elevator [in] the elevator that claimed the floor.
+	 * @param elevatorID [in] the elevator's ID.
+	 * @param floor [in] the floor the passengers are waiting on.
+	 * @param direction [in] +1 for passengers going up, -1 for passengers going down.
+	 * @return the number of passengers reserved.
+	 */
+	private int reservePassengers(Elevator elevator, int elevatorID, int floor, int direction) {
+		int free = elevator.getFreeCapacity();
+		int reserved = 0;
+		for (int i = floor + direction; i >= 0 && i < floorCount && reserved < free; i += direction) {
+			int index = floor * floorCount + i;
+			int unreserved = passengerRequests.get(index) - reservedPassengers.get(index);
+			if (unreserved > 0 && dispatchStrategy.shouldBoard(this, elevatorID, floor, i)) {
+				int count = Math.min(unreserved, free - reserved);
+				reserve(elevatorID, floor, i, count);
+				reserved += count;
+			}
 		}
 		
-		return temp != 0;
+		return reserved;
+	}
+	
+	/**
+	 * Moves the longest waiting passengers at a floor going to a floor into an elevator's reservation.
+	 * They are the same passengers that would have boarded first. The caller holds the floor's lock.
+	 * @param elevatorID [in] the elevator reserving the passengers.
+	 * @param floor [in] the floor the passengers are waiting on.
+	 * @param goingToFloor [in] the floor the passengers are going to.
+	 * @param count [in] the number of passengers, at most the unreserved ones.
+	 */
+	private void reserve(int elevatorID, int floor, int goingToFloor, int count) {
+		int index = floor * floorCount + goingToFloor;
+		reservedPassengers.getAndAdd(index, count);
+		reservedAtFloor.getAndAdd(floor, count);
+		
+		PickupReservations reservations = elevators[elevatorID].getReservations();
+		int reservation = reservations.add(floor, goingToFloor);
+		for (int remaining = count; remaining > 0; ) {
+			int spawnTime = waitingCohorts[index].peekSpawnTime();
+			int moved = waitingCohorts[index].poll(remaining);
+			reservations.addPassengers(reservation, spawnTime, moved);
+			remaining -= moved;
+		}
+		
+		EventTrace.record(clock.getTime(), EventTrace.RESERVED, elevatorID, floor, goingToFloor, count);
+	}
+	
+	/**
+	 * Puts the passengers of one of an elevator's reservations back in front of the waiting passengers.
+	 * The caller holds the floor's lock.
+	 * @param elevatorID [in] the elevator that made the reservation.
+	 * @param reservations [in] the elevator's reservations.
+	 * @param index [in] the reservation to release.
+	 */
+	private void release(int elevatorID, PickupReservations reservations, int index) {
+		int floor = reservations.getFloor(index);
+		int goingToFloor = reservations.getDestination(index);
+		int count = reservations.getCount(index);
+		unreserve(floor, goingToFloor, count);
+		waitingCohorts[floor * floorCount + goingToFloor].prependAll(reservations.getCohorts(index));
+		reservations.remove(index);
+		
+		EventTrace.record(clock.getTime(), EventTrace.UNRESERVED, elevatorID, floor, goingToFloor, count);
+	}
+	
+	/**
+	 * Boards passengers, oldest first, and records their wait time. The caller holds the floor's lock.
+	 * @param elevatorID [in] the elevator the passengers are boarding.
+	 * @param floor [in] the floor the passengers are waiting on.
+	 * @param from [in] the cohorts the passengers are waiting in.
+	 * @param boardingCohorts [out] the elevator's cohorts for the passengers' destination.
+	 * @param count [in] the number of passengers.
+	 */
+	private void movePassengers(int elevatorID, int floor, PassengerCohortQueue from, PassengerCohortQueue boardingCohorts,
+								int count) {
+		for (int remaining = count; remaining > 0; ) {
+			int spawnTime = from.peekSpawnTime();
+			int moved = from.poll(remaining);
+			boardingCohorts.add(spawnTime, floor, moved);
+			passengerMetrics.recordWait(floor, elevatorID, clock.getTime() - spawnTime, moved);
+			remaining -= moved;
+		}
+	}
+	
+	/**
+	 * Takes passengers off the reserved totals.
+	 * @param floor [in] the floor the passengers are waiting on.
+	 * @param goingToFloor [in] the floor the passengers are going to.
+	 * @param count [in] the number of passengers.
+	 */
+	private void unreserve(int floor, int goingToFloor, int count) {
+		reservedPassengers.getAndAdd(floor * floorCount + goingToFloor, -count);
+		reservedAtFloor.getAndAdd(floor, -count);
+	}
+	
+	/**
+	 * Locks the cohort queues of a floor. Only contended locks are timed, so the usual case costs nothing extra.
+	 * @param floor [in] specific building floor.
+	 */
+	private void lockCohorts(int floor) {
+		if (cohortLocks[floor].tryLock()) {
+			return;
+		}
+		
+		long start = System.nanoTime();
+		cohortLocks[floor].lock();
+		cohortLockWaitNanos.add(System.nanoTime() - start);
 	}
 	
 	/**
 	 * Tell the floor which elevator is going to be approaching it.
 	 * @param floor [in] specific building floor.
 	 * @param elevatorID [in] the elevator ID that is approaching the floor.
+	 * @return whether or not the elevator got the floor. false if another elevator is already approaching.
 	 */
-	private void setPickupRequest(int floor, int elevatorID) {
-		floors[floor].setApproachingElevator(elevatorID);
+	private boolean setPickupRequest(int floor, int elevatorID) {
+		if (!approachingElevator.compareAndSet(floor, -1, elevatorID)) {
+			return false;
+		}
+		
+		unassignedFloors.clear(floor);
+		EventTrace.record(clock.getTime(), EventTrace.CLAIMED, elevatorID, floor, -1, 0);
+		return true;
+	}
+	
+	/**
+	 * Clears the floor's bit in unassignedFloors and sets it again if the floor still
+	 * has waiting passengers and no approaching elevator.
+	 * Setting it again after clearing makes sure a concurrent spawnPassengers() isn't lost.
+	 * @param floor [in] specific building floor.
+	 */
+	private void refreshUnassignedFloor(int floor) {
+		unassignedFloors.clear(floor);
+		if (hasUnreservedPassengers(floor) && !isElevatorApproaching(floor)) {
+			unassignedFloors.set(floor);
+		}
 	}
 	
 	/**
@@ -191,6 +977,41 @@ public class BuildingManager {
 	 * @return whether or not an elevator is approaching the floor.
 	 */
 	private boolean isElevatorApproaching(int floor) {
-		return floors[floor].getApproachingElevator() != -1;
+		return approachingElevator.get(floor) != -1;
+	}
+	
+	/**
+	 * @param matrix [in] a flat matrix with one row per building floor.
+	 * @param floor [in] specific building floor.
+	 * @param rowLength [in] the length of each row.
+	 * @return a copy of the floor's row.
+	 */
+	private static int[] copyRow(AtomicIntegerArray matrix, int floor, int rowLength) {
+		int[] row = new int[rowLength];
+		for (int i = 0; i < rowLength; i++) {
+			row[i] = matrix.get(floor * rowLength + i);
+		}
+		
+		return row;
+	}
+	
+	/**
+	 * @param out [in] the snapshot stream.
+	 * @param array [in] the array to write.
+	 */
+	private static void writeArray(DataOutputStream out, AtomicIntegerArray array) throws IOException {
+		for (int i = 0; i < array.length(); i++) {
+			out.writeInt(array.get(i));
+		}
+	}
+	
+	/**
+	 * @param in [in] the snapshot stream.
+	 * @param array [out] the array to read into, already the right size.
+	 */
+	private static void readArray(DataInputStream in, AtomicIntegerArray array) throws IOException {
+		for (int i = 0; i < array.length(); i++) {
+			array.set(i, in.readInt());
+		}
 	}
 }
@@ -0,0 +1,223 @@
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * An immutable, versioned snapshot of the building and its elevators, for reports and monitoring.
+ * Views are only captured between ticks, when every elevator is parked, so a view never mixes state
+ * from before and after a tick the way reading the live counters during a tick can.
+ * The BuildingManager captures a new view at the next tick boundary after someone asked for one,
+ * so readers never block the elevators and a simulation nobody watches pays nothing for views.
+ */
+public class BuildingView
+{
+	private long version;
+	private int time;
+	private int[] totalDestinationRequests;
+	private int[] arrivedPassengers;
+	private int[] waitingPassengers;
+	private int[] approachingElevator;
+	private int[] currentFloor;
+	private int[] numPassengers;
+	private int[] totalLoadedPassengers;
+	private int[] totalUnloadedPassengers;
+	private Elevator.Status[] status;
+	private double[] utilization;
+	private long passengersBoarded;
+	private long passengersArrived;
+
+	/**
+	 * Captures the building. Only called by the BuildingManager between ticks.
+	 * @param manager [in] the building manager, with every elevator registered.
+	 * @param iVersion [in] the version of the view, one more than the last one.
+	 */
+	BuildingView(BuildingManager manager, long iVersion)
+	{
+		version = iVersion;
+		time = manager.getClock().getTime();
+
+		int floorCount = manager.getFloorCount();
+		totalDestinationRequests = new int[floorCount];
+		arrivedPassengers = new int[floorCount];
+		waitingPassengers = new int[floorCount];
+		approachingElevator = new int[floorCount];
+		for (int floor = 0; floor < floorCount; floor++) {
+			totalDestinationRequests[floor] = sum(manager.getTotalDestinationRequestsAtFloor(floor));
+			arrivedPassengers[floor] = sum(manager.getArrivedPassengersAtFloor(floor));
+			waitingPassengers[floor] = manager.getWaitingPassengersAtFloor(floor);
+			approachingElevator[floor] = manager.getApproachingElevatorAtFloor(floor);
+		}
+
+		int elevatorCount = manager.getElevatorCount();
+		currentFloor = new int[elevatorCount];
+		numPassengers = new int[elevatorCount];
+		totalLoadedPassengers = new int[elevatorCount];
+		totalUnloadedPassengers = new int[elevatorCount];
+		status = new Elevator.Status[elevatorCount];
+		utilization = new double[elevatorCount];
+		for (int i = 0; i < elevatorCount; i++) {
+			Elevator e = manager.getElevator(i);
+			currentFloor[i] = e.getCurrentFloor();
+			numPassengers[i] = e.getNumPassengers();
+			totalLoadedPassengers[i] = e.getTotalLoadedPassengers();
+			totalUnloadedPassengers[i] = e.getTotalUnloadedPassengers();
+			status[i] = e.getStatus();
+			utilization[i] = e.getUtilization();
+		}
+
+		passengersBoarded = manager.getPassengerMetrics().getTotalWait().getTotalCount();
+		passengersArrived = manager.getPassengerMetrics().getTotalJourney().getTotalCount();
+	}
+
+	/**
+	 * @return the version of the view. Every view of a building has a higher version than the one before it.
+	 */
+	public long getVersion()
+	{
+		return version;
+	}
+
+	/**
+	 * @return the SimClock time the view was captured at.
+	 */
+	public int getTime()
+	{
+		return time;
+	}
+
+	/**
+	 * @return the number of building floors.
+	 */
+	public int getFloorCount()
+	{
+		return waitingPassengers.length;
+	}
+
+	/**
+	 * @return the number of elevators.
+	 */
+	public int getElevatorCount()
+	{
+		return currentFloor.length;
+	}
+
+	/**
+	 * @param floor [in] specific building floor.
+	 * @return the total number of passengers that requested an elevator at the floor.
+	 */
+	public int getTotalDestinationRequests(int floor)
+	{
+		return totalDestinationRequests[floor];
+	}
+
+	/**
+	 * @param floor [in] specific building floor.
+	 * @return the total number of passengers that got off at the floor.
+	 */
+	public int getArrivedPassengers(int floor)
+	{
+		return arrivedPassengers[floor];
+	}
+
+	/**
+	 * @param floor [in] specific building floor.
+	 * @return the number of passengers waiting at the floor.
+	 */
+	public int getWaitingPassengers(int floor)
+	{
+		return waitingPassengers[floor];
+	}
+
+	/**
+	 * @param floor [in] specific building floor.
+	 * @return the elevator coming to pick up at the floor, -1 if none.
+	 */
+	public int getApproachingElevator(int floor)
+	{
+		return approachingElevator[floor];
+	}
+
+	/**
+	 * @param elevatorID [in] the elevator's ID.
+	 * @return the floor the elevator was last at.
+	 */
+	public int getCurrentFloor(int elevatorID)
+	{
+		return currentFloor[elevatorID];
+	}
+
+	/**
+	 * @param elevatorID [in] the elevator's ID.
+	 * @return the number of passengers in the elevator.
+	 */
+	public int getNumPassengers(int elevatorID)
+	{
+		return numPassengers[elevatorID];
+	}
+
+	/**
+	 * @param elevatorID [in] the elevator's ID.
+	 * @return the total number of passengers that got on the elevator.
+	 */
+	public int getTotalLoadedPassengers(int elevatorID)
+	{
+		return totalLoadedPassengers[elevatorID];
+	}
+
+	/**
+	 * @param elevatorID [in] the elevator's ID.
+	 * @return the total number of passengers that got off the elevator.
+	 */
+	public int getTotalUnloadedPassengers(int elevatorID)
+	{
+		return totalUnloadedPassengers[elevatorID];
+	}
+
+	/**
+	 * @param elevatorID [in] the elevator's ID.
+	 * @return the elevator's status.
+	 */
+	public Elevator.Status getStatus(int elevatorID)
+	{
+		return status[elevatorID];
+	}
+
+	/**
+	 * @param elevatorID [in] the elevator's ID.
+	 * @return the share of the simulation the elevator was not idle, from 0 to 1.
+	 */
+	public double getUtilization(int elevatorID)
+	{
+		return utilization[elevatorID];
+	}
+
+	/**
+	 * @return the number of passengers that boarded an elevator.
+	 */
+	public long getPassengersBoarded()
+	{
+		return passengersBoarded;
+	}
+
+	/**
+	 * @return the number of passengers that arrived at their destination.
+	 */
+	public long getPassengersArrived()
+	{
+		return passengersArrived;
+	}
+
+	/**
+	 * @param values [in] the numbers to add up.
+	 * @return their sum.
+	 */
+	private static int sum(int[] values)
+	{
+		int total = 0;
+		for (int value : values) {
+			total += value;
+		}
+		return total;
+	}
+}
@@ -0,0 +1,32 @@
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * Thrown when a config file can't be read or has a mistake in it.
+ * The message says which file and line the mistake is on.
+ */
+public class ConfigException extends IllegalArgumentException
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * @param fileName [in] the config file.
+	 * @param lineNumber [in] the line with the mistake, starting at 1.
+	 * @param message [in] what is wrong with the line.
+	 */
+	public ConfigException(String fileName, int lineNumber, String message)
+	{
+		super(fileName + " line " + lineNumber + ": " + message);
+	}
+
+	/**
+	 * @param message [in] what is wrong with the file.
+	 * @param cause [in] the exception that caused it.
+	 */
+	public ConfigException(String message, Throwable cause)
+	{
+		super(message, cause);
+	}
+}
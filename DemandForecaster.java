@@ -0,0 +1,247 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * Learns how many passengers spawn on every floor, online, from the BuildingManager's spawnPassengers() calls,
+ * for the ParkingPolicy to park idle elevators where passengers are about to turn up. It keeps two
+ * exponentially weighted arrival rates per floor, in passengers per tick:
+ * 		- the recent rate, decaying with a time constant of RECENT_TICKS. It follows whatever is going on right now.
+ * 		- the time-of-day rate, one per slot of the day. At the end of every slot, the passengers counted in it are
+ * 		  weighted into that slot's rate with DAY_WEIGHT, so every day refines what the same time of day looks like.
+ * The forecast for a floor is the highest of its recent rate and its time-of-day rates for the next slot,
+ * or for the next RECENT_TICKS if that covers more slots. Once a whole day has been seen, that puts cars
+ * in the lobby before the morning peak starts, even if nobody has spawned for a while.
+ *
+ * The forecast is worked out for the current time, but only moves on when passengers spawn and when a new
+ * slot starts. The EventScheduler wakes up at every slot start (getNextSlotStart()), so both simulation modes
+ * park the same way. Only the main thread spawns passengers, between ticks, so nothing here is atomic.
+ */
+public class DemandForecaster
+{
+	// One day of simulated seconds.
+	public static final int DEFAULT_DAY_LENGTH = 86400;
+
+	private static final int SLOTS_PER_DAY = 96;
+	private static final double RECENT_TICKS = 300;
+	private static final double DAY_WEIGHT = 0.3;
+
+	private int floorCount;
+	private int dayLength;
+	private int slotCount;
+
+	private double[] recentRates;  // As of recentTimes.
+	private int[] recentTimes;
+	private int lastSpawnTime;
+
+	private double[] dayRates;  // Slot x floor matrix.
+	private boolean[] slotSeen;
+	private int[] slotPassengers;  // Passengers per floor so far in currentSlot.
+	private long currentSlot;
+
+	/**
+	 * Constructor for a forecaster with a day of DEFAULT_DAY_LENGTH ticks.
+	 * @param iFloorCount [in] the number of building floors.
+	 */
+	public DemandForecaster(int iFloorCount)
+	{
+		this(iFloorCount, DEFAULT_DAY_LENGTH);
+	}
+
+	/**
+	 * Constructor that sets the length of a day. The day is split into up to 96 slots.
+	 * @param iFloorCount [in] the number of building floors.
+	 * @param iDayLength [in] the ticks the traffic takes to repeat itself.
+	 */
+	public DemandForecaster(int iFloorCount, int iDayLength)
+	{
+		if (iDayLength <= 0) {
+			throw new IllegalArgumentException("Day length must be positive, was " + iDayLength);
+		}
+
+		floorCount = iFloorCount;
+		dayLength = iDayLength;
+		slotCount = Math.min(SLOTS_PER_DAY, dayLength);
+		recentRates = new double[floorCount];
+		recentTimes = new int[floorCount];
+		dayRates = new double[slotCount * floorCount];
+		slotSeen = new boolean[slotCount];
+		slotPassengers = new int[floorCount];
+	}
+
+	/**
+	 * Counts passengers that spawned. Only called by the main thread.
+	 * @param time [in] the SimClock time they spawned. Never before the last call.
+	 * @param floor [in] the floor they spawned on.
+	 * @param count [in] the number of passengers.
+	 */
+	public void recordSpawn(int time, int floor, int count)
+	{
+		finishSlots(slotAt(time));
+
+		recentRates[floor] = decayedRate(floor, time) + count / RECENT_TICKS;
+		recentTimes[floor] = time;
+		lastSpawnTime = time;
+		slotPassengers[floor] += count;
+	}
+
+	/**
+	 * @param floor [in] specific building floor.
+	 * @param time [in] the SimClock time now. Never before the last spawn.
+	 * @return the passengers per tick expected to spawn on floor, as of the later of the last spawn and the start of time's slot.
+	 */
+	public double getForecast(int floor, int time)
+	{
+		long timeSlot = slotAt(time);
+		int from = (int) Math.max(lastSpawnTime, slotStart(timeSlot));
+		
+		// Look at least at the next slot, and as far ahead as the recent rate looks back,
+		// so parked cars get there before the peak does.
+		long firstSlot = timeSlot + 1;
+		long lastSlot = Math.max(firstSlot, slotAt((int) Math.min(from + (long) RECENT_TICKS, Integer.MAX_VALUE)));
+		double forecast = decayedRate(floor, from);
+		for (long slot = firstSlot; slot <= lastSlot && slot - firstSlot < slotCount; slot++) {
+			int daySlot = (int) (slot % slotCount);
+			if (slotSeen[daySlot]) {
+				forecast = Math.max(forecast, dayRates[daySlot * floorCount + floor]);
+			}
+		}
+		return forecast;
+	}
+
+	/**
+	 * @param time [in] a SimClock time.
+	 * @return the first SimClock time of the slot after time's, when the forecast looks further ahead.
+	 * 		   Integer.MAX_VALUE if that is past the end of the clock.
+	 */
+	public int getNextSlotStart(int time)
+	{
+		return (int) Math.min(slotStart(slotAt(time) + 1), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return the ticks the traffic takes to repeat itself.
+	 */
+	public int getDayLength()
+	{
+		return dayLength;
+	}
+
+	/**
+	 * Writes what has been learned for a SimulationSnapshot.
+	 * @param out [in] the snapshot stream.
+	 */
+	public void writeState(DataOutputStream out) throws IOException
+	{
+		out.writeInt(dayLength);
+		out.writeInt(slotCount);
+		for (int floor = 0; floor < floorCount; floor++) {
+			out.writeDouble(recentRates[floor]);
+			out.writeInt(recentTimes[floor]);
+			out.writeInt(slotPassengers[floor]);
+		}
+		out.writeInt(lastSpawnTime);
+		out.writeLong(currentSlot);
+		for (int slot = 0; slot < slotCount; slot++) {
+			out.writeBoolean(slotSeen[slot]);
+		}
+		for (double rate : dayRates) {
+			out.writeDouble(rate);
+		}
+	}
+
+	/**
+	 * Replaces what has been learned with what writeState() wrote, including the day length it was learned with.
+	 * @param in [in] the snapshot stream.
+	 */
+	public void readState(DataInputStream in) throws IOException
+	{
+		dayLength = in.readInt();
+		slotCount = in.readInt();
+		for (int floor = 0; floor < floorCount; floor++) {
+			recentRates[floor] = in.readDouble();
+			recentTimes[floor] = in.readInt();
+			slotPassengers[floor] = in.readInt();
+		}
+		lastSpawnTime = in.readInt();
+		currentSlot = in.readLong();
+		slotSeen = new boolean[slotCount];
+		for (int slot = 0; slot < slotCount; slot++) {
+			slotSeen[slot] = in.readBoolean();
+		}
+		dayRates = new double[slotCount * floorCount];
+		for (int i = 0; i < dayRates.length; i++) {
+			dayRates[i] = in.readDouble();
+		}
+	}
+
+	/**
+	 * @param time [in] a SimClock time.
+	 * @return the slot the time is in, counting from Time 0.
+	 */
+	private long slotAt(int time)
+	{
+		return (long) (time / dayLength) * slotCount + (long) (time % dayLength) * slotCount / dayLength;
+	}
+
+	/**
+	 * @param slot [in] a slot, counting from Time 0.
+	 * @return the first SimClock time in the slot, the inverse of slotAt().
+	 */
+	private long slotStart(long slot)
+	{
+		long daySlot = slot % slotCount;
+		return slot / slotCount * dayLength + (daySlot * dayLength + slotCount - 1) / slotCount;
+	}
+
+	/**
+	 * @return the recent rate of a floor, decayed to a time.
+	 */
+	private double decayedRate(int floor, int time)
+	{
+		return recentRates[floor] * Math.exp(-(time - recentTimes[floor]) / RECENT_TICKS);
+	}
+
+	/**
+	 * Weights the passengers of every slot before slot into the time-of-day rates.
+	 * Slots without any passengers count as 0, but never more than a day of them.
+	 * @param slot [in] the slot the clock is in now, counting from Time 0.
+	 */
+	private void finishSlots(long slot)
+	{
+		if (slot == currentSlot) {
+			return;
+		}
+
+		finishSlot(currentSlot);
+		Arrays.fill(slotPassengers, 0);
+		long emptySlots = Math.min(slot - currentSlot - 1, slotCount);
+		for (long i = 1; i <= emptySlots; i++) {
+			finishSlot(currentSlot + i);
+		}
+		currentSlot = slot;
+	}
+
+	/**
+	 * Weights slotPassengers into the time-of-day rates of a slot.
+	 * @param slot [in] the slot that is over, counting from Time 0.
+	 */
+	private void finishSlot(long slot)
+	{
+		int daySlot = (int) (slot % slotCount);
+		// The slots are as even as whole ticks allow.
+		long slotLength = (long) (daySlot + 1) * dayLength / slotCount - (long) daySlot * dayLength / slotCount;
+		for (int floor = 0; floor < floorCount; floor++) {
+			double rate = (double) slotPassengers[floor] / slotLength;
+			int index = daySlot * floorCount + floor;
+			dayRates[index] = slotSeen[daySlot] ? DAY_WEIGHT * rate + (1 - DAY_WEIGHT) * dayRates[index] : rate;
+		}
+		slotSeen[daySlot] = true;
+	}
+}
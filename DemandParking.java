@@ -0,0 +1,51 @@
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * Parks idle elevators where the DemandForecaster expects passengers, spread out in proportion to the forecast.
+ * Every floor is scored by its forecast divided by one more than the number of other idle elevators parked
+ * or parking there, and the elevator goes to the best one (closest first on a tie). That sends the first idle
+ * elevator to the busiest floor, and a second one there only once it is twice as busy as any other floor.
+ * An elevator only moves if the best floor scores MIN_GAIN times its own, so parked elevators don't shuffle
+ * back and forth over small changes in the forecast.
+ */
+public class DemandParking implements ParkingPolicy
+{
+	private static final double MIN_GAIN = 1.5;
+	
+	/**
+	 * @return the best scoring floor. -1 if nothing is forecast or the elevator is as good where it is.
+	 */
+	@Override
+	public int selectParkingFloor(BuildingManager manager, int elevatorID) {
+		DemandForecaster forecaster = manager.getDemandForecaster();
+		int time = manager.getClock().getTime();
+		int from = manager.getElevator(elevatorID).getCurrentFloor();
+		
+		// Count the other idle elevators at every floor. Busy ones will be wherever their passengers take them.
+		int[] parked = new int[manager.getFloorCount()];
+		for (int i = 0; i < manager.getElevatorCount(); i++) {
+			Elevator other = manager.getElevator(i);
+			if (i != elevatorID && other.isIdle()) {
+				parked[other.getParkingFloor()]++;
+			}
+		}
+		
+		int bestFloor = -1;
+		double bestScore = 0;
+		for (int floor = 0; floor < parked.length; floor++) {
+			double score = forecaster.getForecast(floor, time) / (1 + parked[floor]);
+			if (score > bestScore || (score == bestScore && bestFloor != -1 && Math.abs(floor - from) < Math.abs(bestFloor - from))) {
+				bestFloor = floor;
+				bestScore = score;
+			}
+		}
+		
+		if (bestFloor == -1 || bestScore < MIN_GAIN * forecaster.getForecast(from, time) / (1 + parked[from])) {
+			return -1;
+		}
+		return bestFloor;
+	}
+}
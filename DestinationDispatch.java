@@ -0,0 +1,135 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * Destination dispatch. The floors are split into one destination sector per elevator and
+ * passengers are grouped by the sector they are going to, so each trip makes fewer stops.
+ * An idle elevator goes to the floor with the most waiting passengers, is assigned the
+ * destination most of them are going to, and only boards passengers going to that sector
+ * in the same direction. Everybody else stays behind for the next elevator.
+ * An elevator that claims a floor on its way is assigned the destination most of the passengers
+ * going its way are going to. An elevator that was never assigned one, e.g. one already on its way
+ * when a snapshot from another strategy was resumed, lets everybody board.
+ */
+public class DestinationDispatch implements DispatchStrategy
+{
+	// The destination each elevator was assigned for the last floor it claimed, indexed by elevator ID.
+	// -1 until it claims one.
+	private int[] assignedDestination;
+	
+	/**
+	 * Forgets every elevator's destination.
+	 */
+	@Override
+	public void reset(BuildingManager manager) {
+		assignedDestination = new int[manager.getElevatorCount()];
+		Arrays.fill(assignedDestination, -1);
+	}
+	
+	/**
+	 * @return the unassigned floor with the most waiting passengers, the nearest one on ties.
+	 */
+	@Override
+	public int selectFloor(BuildingManager manager, int elevatorID) {
+		int from = manager.getElevator(elevatorID).getCurrentFloor();
+		int bestFloor = -1;
+		int bestWaiting = 0;
+		
+		for (int floor = manager.nextUnassignedFloor(0); floor != -1; floor = manager.nextUnassignedFloor(floor + 1)) {
+			int waiting = manager.getWaitingPassengersAtFloor(floor);
+			if (waiting > bestWaiting || 
+				(waiting == bestWaiting && Math.abs(floor - from) < Math.abs(bestFloor - from))) {
+				bestFloor = floor;
+				bestWaiting = waiting;
+			}
+		}
+		
+		return bestFloor;
+	}
+	
+	/**
+	 * Assigns the elevator the destination most passengers at the floor are going to, out of the ones
+	 * going its way if it is travelling and any are. The floor may not be the one selectFloor() picked.
+	 */
+	@Override
+	public void floorClaimed(BuildingManager manager, int elevatorID, int floor, int direction) {
+		int destination = busiestDestination(manager, floor, direction);
+		assignedDestination[elevatorID] = destination != floor ? destination : busiestDestination(manager, floor, 0);
+	}
+	
+	/**
+	 * Only passengers going in the direction of the assigned destination and to the same sector board.
+	 */
+	@Override
+	public boolean shouldBoard(BuildingManager manager, int elevatorID, int floor, int destinationFloor) {
+		int assigned = assignedDestination[elevatorID];
+		if (assigned == -1) {
+			return true;
+		}
+		boolean sameDirection = (destinationFloor > floor) == (assigned > floor);
+		
+		return sameDirection && sector(manager, destinationFloor) == sector(manager, assigned);
+	}
+	
+	/**
+	 * Writes the destination every elevator was assigned.
+	 */
+	@Override
+	public void writeState(DataOutputStream out) throws IOException {
+		out.writeInt(assignedDestination.length);
+		for (int i = 0; i < assignedDestination.length; i++) {
+			out.writeInt(assignedDestination[i]);
+		}
+	}
+	
+	/**
+	 * Reads back the destination every elevator was assigned.
+	 */
+	@Override
+	public void readState(BuildingManager manager, DataInputStream in) throws IOException {
+		reset(manager);
+		int length = in.readInt();
+		for (int i = 0; i < length; i++) {
+			assignedDestination[i] = in.readInt();
+		}
+	}
+	
+	/**
+	 * @param manager [in] the building manager.
+	 * @param floor [in] specific building floor.
+	 * @param direction [in] +1 or -1 to only count passengers going that way, 0 for everybody.
+	 * @return the destination floor most passengers at floor are waiting for, floor itself if nobody is.
+	 */
+	private int busiestDestination(BuildingManager manager, int floor, int direction) {
+		int busiest = floor;
+		int mostWaiting = 0;
+		for (int i = 0; i < manager.getFloorCount(); i++) {
+			if (direction * (i - floor) < 0) {
+				continue;
+			}
+			int waiting = manager.getPassengerRequests(floor, i);
+			if (waiting > mostWaiting) {
+				busiest = i;
+				mostWaiting = waiting;
+			}
+		}
+		
+		return busiest;
+	}
+	
+	/**
+	 * @param manager [in] the building manager.
+	 * @param floor [in] specific building floor.
+	 * @return the destination sector of the floor, 0 to elevatorCount - 1.
+	 */
+	private int sector(BuildingManager manager, int floor) {
+		return floor * manager.getElevatorCount() / manager.getFloorCount();
+	}
+}
@@ -0,0 +1,94 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * A DispatchStrategy decides which floor an idle elevator should go to for passenger pickup.
+ * The BuildingManager asks the strategy for a floor in requestFloorAccess() and then claims it,
+ * asking again if another elevator got there first. Strategies only read building state.
+ * 
+ * The strategy also decides which of the waiting passengers board once the elevator arrives.
+ */
+public interface DispatchStrategy
+{
+	/**
+	 * Picks the floor an idle elevator should go to for passenger pickup.
+	 * @param manager [in] the building manager to read floor and elevator state from.
+	 * @param elevatorID [in] the idle elevator that is requesting a floor.
+	 * @return a floor that has waiting passengers and no approaching elevator.
+	 * 		   -1 if this elevator should stay idle.
+	 */
+	int selectFloor(BuildingManager manager, int elevatorID);
+	
+	/**
+	 * Decides whether passengers waiting at the elevator's pickup floor get on.
+	 * By default everybody boards.
+	 * @param manager [in] the building manager.
+	 * @param elevatorID [in] the elevator picking up passengers.
+	 * @param floor [in] the floor the passengers are waiting on.
+	 * @param destinationFloor [in] the floor the passengers want to go to.
+	 * @return whether or not the passengers board this elevator.
+	 */
+	default boolean shouldBoard(BuildingManager manager, int elevatorID, int floor, int destinationFloor) {
+		return true;
+	}
+	
+	/**
+	 * Called whenever an elevator claims a floor, from requestFloorAccess() or on its way with collective control,
+	 * before any passengers there are reserved for it. By default strategies don't need to know.
+	 * @param manager [in] the building manager.
+	 * @param elevatorID [in] the elevator that claimed the floor.
+	 * @param floor [in] the floor it claimed.
+	 * @param direction [in] the direction the elevator is travelling in, 0 if it is idle.
+	 */
+	default void floorClaimed(BuildingManager manager, int elevatorID, int floor, int direction) {
+	}
+	
+	/**
+	 * Sets the strategy up for a building with nothing remembered yet. Called when the strategy is set,
+	 * and when a snapshot written with another strategy is resumed. By default strategies remember nothing.
+	 * @param manager [in] the building manager.
+	 */
+	default void reset(BuildingManager manager) {
+	}
+	
+	/**
+	 * Writes whatever the strategy remembers between calls for a SimulationSnapshot.
+	 * By default strategies remember nothing.
+	 * @param out [in] the snapshot stream.
+	 */
+	default void writeState(DataOutputStream out) throws IOException {
+	}
+	
+	/**
+	 * Reads back the state written by writeState().
+	 * @param manager [in] the building manager.
+	 * @param in [in] the snapshot stream.
+	 */
+	default void readState(BuildingManager manager, DataInputStream in) throws IOException {
+	}
+	
+	/**
+	 * @param name [in] one of "lowest", "nearest", "eta" or "destination".
+	 * @return a new dispatch strategy for the name.
+	 */
+	static DispatchStrategy forName(String name) {
+		switch (name) {
+			case "lowest":
+				return new LowestFloorDispatch();
+			case "nearest":
+				return new NearestCarDispatch();
+			case "eta":
+				return new EtaDispatch();
+			case "destination":
+				return new DestinationDispatch();
+			default:
+				throw new IllegalArgumentException("Unknown dispatch strategy " + name);
+		}
+	}
+}
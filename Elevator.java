@@ -1,4 +1,6 @@
-import java.util.ArrayList;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 
 /**
  * @author Victoria Lai 49451704
@@ -8,40 +10,72 @@ import java.util.ArrayList;
 /**
  * 
  * An Elevator object represents a single Elevator in the ElevatorSimulation.
- * Each elevator is given an elevatorID (0-4) so that we can distinguish 
+ * Each elevator is given an elevatorID (0 to elevatorCount - 1) so that we can distinguish 
  * between and collect data for each Elevator. Each Elevator object essentially
  * keeps track of the Elevator's State, which includes:
  * 		- the current floor the elevator is on
- * 		- the total number of passengers that are inside the elevator
+ * 		- the total number of passengers that are inside the elevator, up to its capacity
  * 		- a running count of the number of passengers the elevator has LOADED
  * 		  throughout the simulation
  * 		- a running count of the number of passengers the elevator has UNLOADED
  * 		  throughout the simulation
- * 		- a moveQueue of ElevatorEvent objects that control the movement of the
- * 		  elevator
+ * 		- a moveQueue of ElevatorEvents that control the movement of the
+ * 		  elevator, kept as primitives in an ElevatorEventQueue
  * 		- an array that maintains the number of passengers inside the elevator
  * 		  and each floor they are requesting to go to
+ * 		- the cohorts of those passengers, to know when each of them spawned
+ * 
+ * The elevator's status (IDLE, PARKING, PICKUP or DROPOFF) and busy time are kept up to date whenever the
+ * elevator changes state, for the BuildingView.
+ * 
+ * With a ParkingPolicy, an IDLE elevator that isn't given a floor may be sent to park at another floor
+ * to wait for its next passengers. A parking elevator still counts as idle and can be sent for passengers
+ * on the way. It then carries on from the last floor it passed.
+ * 
+ * With collective control on, the moveQueue is a list of stops sorted in the direction
+ * of travel (SCAN/LOOK). A moving elevator claims floors ahead of it that have passengers
+ * going its way, merges them into the stop list and picks them up en route. It only turns
+ * around after its last stop.
+ * 
+ * Elevators that stop at the same floor at the same time never change the floor's state in between each
+ * other, since they do that at the same time in threaded mode. An elevator boards the passengers it came for
+ * when it gets there, but claiming a floor it stopped at anyway and releasing the floor and whoever it
+ * couldn't take wait for its turn of finishStop(), in elevator ID order, before any elevator asks for a floor.
  *
  */
 public class Elevator implements Runnable
 {
-	private final static int traversalTime = 5;
-	private final static int loadUnloadTime = 10;
+	public enum Status { IDLE, PARKING, PICKUP, DROPOFF }
 	
 	private int elevatorID;
 	private int currentFloor;
 	private int numPassengers;  // IN the elevator
+	private int capacity;
 	private int totalLoadedPassengers;
 	private int totalUnloadedPassengers;
-	private ArrayList<ElevatorEvent> moveQueue;
+	private ElevatorEventQueue moveQueue;
 	private int[] passengerDestinations;
+	private PassengerCohortQueue[] ridingCohorts;
+	private PickupReservations reservations;  // Waiting passengers this elevator is on its way to pick up.
+	private boolean collectiveControl;
+	private int direction;  // +1 up, -1 down, 0 IDLE. Only used with collective control.
+	private int departTime;  // When the elevator left currentFloor. Only used with collective control or while parking.
+	private boolean parking;  // The only event in the moveQueue is the move to a parking floor.
+	private boolean stopUnclaimed;  // Stopped at currentFloor without a claim there. Only until finishStop().
+	private boolean pickupUnreleased;  // Picked up at currentFloor and still holds the floor. Only until finishStop().
 	BuildingManager manager;
+	private SimClock clock;
+	
+	// Kept for the BuildingView.
+	private volatile Status status;
+	private volatile long busyTicks;  // Ticks spent out of IDLE, up to busySince.
+	private volatile int busySince;  // When the elevator last left IDLE.
 	
 	/**
 	 * Default constructor.
 	 * Each elevator begins on Floor 0...with 0 passengers, 0 totalLoadedPassengers, 
-	 * 0 totalUnloadedPassengers, and an empty moveQueue that can only hold 
-	 * ElevatorEvents.
+	 * 0 totalUnloadedPassengers, and an empty moveQueue with room for a stop
+	 * at every floor.
 	 * @param elevatorID
 	 * @param manager
 	 */
@@ -50,137 +84,721 @@ public class Elevator implements Runnable
 		elevatorID = ID;
 		currentFloor = 0;
 		numPassengers = 0;
+		capacity = Integer.MAX_VALUE;
 		totalLoadedPassengers = 0;
 		totalUnloadedPassengers = 0;
-		moveQueue = new ArrayList<ElevatorEvent>();
-		passengerDestinations = new int[5];
+		moveQueue = new ElevatorEventQueue(sharedManager.getFloorCount() + 1);
+		passengerDestinations = new int[sharedManager.getFloorCount()];
+		ridingCohorts = new PassengerCohortQueue[sharedManager.getFloorCount()];
+		for (int i = 0; i < ridingCohorts.length; i++) {
+			ridingCohorts[i] = new PassengerCohortQueue();
+		}
+		reservations = new PickupReservations();
 		manager = sharedManager;
+		clock = sharedManager.getClock();
+		status = Status.IDLE;
+		manager.registerElevator(elevatorID, this);
 	}
 	
 	/**
-	 * Method required for Runnable implementation. Instance of method continuously 
-	 * loops and processes ElevatorEvents in moveQueue
+	 * Method required for Runnable implementation. Instance of method waits on the SimClock
+	 * for every tick and processes ElevatorEvents in moveQueue
 	 */
 	public void run() {
-		while (!Thread.interrupted()) {
-		// If the moveQueue is empty, we are in IDLE state.
-			if (moveQueue.isEmpty()) {
-				// Ask the manager if there is a floor where passengers are requesting an elevator.
-				int requestingFloor = manager.requestFloorAccess(elevatorID);
-				// If there is a floor requesting an elevator, create a new elevator event for pick up.
-				if (requestingFloor != -1) {
-					ElevatorEvent newEvent = new ElevatorEvent();
-					
-					// Create a move event that travels to the floor
-					// w/o picking up passengers
-					newEvent.setDestination(requestingFloor);
-					
-					// Calculate expected arrival time.
-					int expectedArrival;
-					expectedArrival = SimClock.getTime() + Math.abs(newEvent.getDestination() - currentFloor) * traversalTime;
-					expectedArrival += loadUnloadTime;
-					
-					newEvent.setExpectedArrival(expectedArrival);
-					
-					// Add event to queue
-					moveQueue.add(newEvent);
-					
-					SimClock.printWithTime("Elevator " + elevatorID + " is heading to Floor " + requestingFloor + " to pick up passengers.");
-				}
+		// Parked on the clock until the main thread releases the next tick.
+		while (clock.awaitTick()) {
+			boolean progressed = processDueEvents();
+			clock.finishEvents();
+			
+			// Elevators claim and release floors in elevator ID order, the same order the
+			// EventScheduler uses, so both modes hand out the same floors.
+			// The elevators that stopped somewhere go first, if any did.
+			int round = 0;
+			if (clock.hasStopTurns()) {
+				clock.awaitTurn(round++, elevatorID);
+				progressed |= finishStop();
+				clock.passTurn();
 			}
-			// else, we are in PICKUP or DROPOFF state.
+			
+			// Idle elevators ask for floors.
+			clock.awaitTurn(round, elevatorID);
+			progressed |= requestPickups();
+			clock.passTurn();
+			
+			clock.finishTick(progressed);
+		}
+	}
+	
+	/**
+	 * Processes every ElevatorEvent in the moveQueue that is due at the current SimClock time.
+	 * @return whether or not the elevator's state changed.
+	 */
+	public boolean processDueEvents() {
+		boolean progressed = false;
+		
+		// Events are compared with <= so that an event is never lost if a tick was missed.
+		while (!moveQueue.isEmpty() && moveQueue.getExpectedArrival(0) <= clock.getTime()) {
+			// A parked elevator just waits to be given a floor.
+			if (parking) {
+				currentFloor = moveQueue.poll();
+				parking = false;
+			}
+			// With collective control every stop can both drop off and pick up.
+			else if (collectiveControl) {
+				arriveAtStop();
+			}
+			// If we aren't carrying passengers, we are in PICKUP state.
+			else if (numPassengers == 0) {
+				arriveForPickup();
+			}
+			// if we do have passengers, then we are in DROPOFF state.
 			else {
-				// If we aren't carrying passengers, we are in PICKUP state.
-				if (numPassengers == 0) {
-					ElevatorEvent event = moveQueue.get(0);
-					
-					// If it is time to PICKUP
-					if (event.getExpectedArrival() == SimClock.getTime()) {
-						// Get the floor the elevator needs to head to for pickup.
-						currentFloor = event.getDestination();
-						
-						moveQueue.remove(0);  // Clear the queue for the DROPOFF events.
-						
-						// Get the amount of passengers at the floor.
-						int[] passengerRequests = manager.getPassengerRequestsAtFloor(currentFloor);
-						
-						SimClock.printWithTime("Elevator " + elevatorID + " has arrived at Floor " + currentFloor + " and has loaded passengers.");
-						// First, we figure out if there are any passengers that want to go UP.
-						// If there are, create elevator events for them ONLY.
-						for (int i = currentFloor + 1; i < BuildingManager.FLOOR_COUNT; i++) {
-							if (passengerRequests[i] > 0) {
-								createElevatorEventForDropoff(passengerRequests, i);
-							}
-						}
-						
-						// If the moveQueue is empty, there were no passengers that want to go UP.
-						// Take care of the passengers that want to go down.
-						if (moveQueue.isEmpty()) {  	// go downwards instead
-							for (int i = currentFloor - 1; i > -1; i--) {
-								if (passengerRequests[i] > 0) {
-									createElevatorEventForDropoff(passengerRequests, i);
-								}
-							}
-						}
-						
-						// Allow other elevators to come pick up at this floor.
-						manager.clearApproachingElevator(currentFloor);
-					}
-				}
-				// if we do have passengers, then we are in DROPOFF state.
-				else {
-					// If the simulation time is equal to expectedArrival time of elevator event.
-					if (SimClock.getTime() == moveQueue.get(0).getExpectedArrival()) {
-						// Get the floor that the elevator should be at.
-						currentFloor = moveQueue.get(0).getDestination();
-						// Update the total unloaded passengers at that floor.
-						totalUnloadedPassengers += passengerDestinations[currentFloor];
-						// Remove the passengers from the elevator.
-						numPassengers -= passengerDestinations[currentFloor];
-						
-						// Update the specific building floor's total arrived passengers for this elevator.
-						manager.updateArrivedPassengers(currentFloor, elevatorID, passengerDestinations[currentFloor]);
-						
-						SimClock.printWithTime("Elevator " + elevatorID + " has arrived at Floor " + currentFloor +
-											   " and has unloaded " + passengerDestinations[currentFloor] + " passengers.");
-						
-						// Clear the passengers that requested to go to currentFloor in the elevator's passengerDestination array.
-						passengerDestinations[currentFloor] = 0;
-						// Remove this elevatorEvent from the queue.
-						moveQueue.remove(0);
-					}
-				}
+				arriveForDropoff();
 			}
+			progressed = true;
 		}
+		
+		if (progressed) {
+			updateStatus();
+		}
+		return progressed;
+	}
+	
+	/**
+	 * If the moveQueue is empty, we are in IDLE state and ask the manager for a floor
+	 * where passengers are requesting an elevator, or else where to park.
+	 * With collective control, a moving elevator instead claims the floors ahead of it
+	 * with passengers going its way.
+	 * @return whether or not the elevator was given a floor or sent to park.
+	 */
+	public boolean requestPickups() {
+		boolean progressed;
+		if (!moveQueue.isEmpty() && !parking) {
+			progressed = collectiveControl && requestEnRoutePickups();
+		}
+		else {
+			progressed = requestPickup() || requestParking();
+		}
+		
+		if (progressed) {
+			updateStatus();
+		}
+		return progressed;
+	}
+	
+	/**
+	 * Updates the elevator's status after it changed state, and adds up its busy time.
+	 */
+	private void updateStatus() {
+		Status newStatus = moveQueue.isEmpty() ? Status.IDLE : parking ? Status.PARKING : numPassengers == 0 ? Status.PICKUP : Status.DROPOFF;
+		if (status == Status.IDLE && newStatus != Status.IDLE) {
+			busySince = clock.getTime();
+		}
+		else if (status != Status.IDLE && newStatus == Status.IDLE) {
+			busyTicks += clock.getTime() - busySince;
+		}
+		
+		status = newStatus;
+	}
+	
+	/**
+	 * Sets how many passengers fit in the elevator. Unlimited by default.
+	 * Should be set before the simulation starts.
+	 * @param iCapacity [in] the most passengers the elevator can carry.
+	 */
+	public void setCapacity(int iCapacity) {
+		if (iCapacity <= 0) {
+			throw new IllegalArgumentException("Elevator capacity must be positive, was " + iCapacity);
+		}
+		capacity = iCapacity;
+	}
+	
+	/**
+	 * Turns SCAN/LOOK collective control on or off. Should be set before the simulation starts.
+	 * @param iCollectiveControl [in] true to pick up passengers en route.
+	 */
+	public void setCollectiveControl(boolean iCollectiveControl) {
+		collectiveControl = iCollectiveControl;
+	}
+	
+	/**
+	 * @return the SimClock time of the next ElevatorEvent in the moveQueue.
+	 * 		   Integer.MAX_VALUE if the elevator is IDLE.
+	 */
+	public int getNextEventTime() {
+		if (moveQueue.isEmpty()) {
+			return Integer.MAX_VALUE;
+		}
+		
+		return moveQueue.getExpectedArrival(0);
+	}
+	
+	/**
+	 * IDLE state. Asks the manager for a floor where passengers are requesting an elevator
+	 * and queues an ElevatorEvent to travel there.
+	 * @return whether or not the elevator was given a floor.
+	 */
+	private boolean requestPickup() {
+		// Ask the manager if there is a floor where passengers are requesting an elevator.
+		int requestingFloor = manager.requestFloorAccess(elevatorID);
+		// If there is a floor requesting an elevator, create a new elevator event for pick up.
+		if (requestingFloor == -1) {
+			return false;
+		}
+		
+		// Stop parking and set off from wherever the elevator has got to.
+		if (parking) {
+			currentFloor = getParkingPosition();
+			moveQueue.poll();
+			parking = false;
+		}
+		
+		if (collectiveControl) {
+			// Head towards the floor, stopping for anyone going the same way.
+			direction = Integer.signum(requestingFloor - currentFloor);
+			departTime = clock.getTime();
+			insertStop(requestingFloor);
+			
+			EventLog.headingForPickup(clock.getTime(), elevatorID, requestingFloor);
+			return true;
+		}
+		
+		// Create a move event that travels to the floor
+		// w/o picking up passengers
+		
+		// Calculate expected arrival time.
+		int expectedArrival = clock.getTime() + manager.getTravelTimeModel().getTravelTicks(currentFloor, requestingFloor);
+		expectedArrival += estimateDwellTicks(requestingFloor);
+		
+		// Add event to queue
+		moveQueue.add(requestingFloor, expectedArrival);
+		
+		EventLog.headingForPickup(clock.getTime(), elevatorID, requestingFloor);
+		return true;
+	}
+	
+	/**
+	 * IDLE state without a floor to go to. Asks the ParkingPolicy where to wait for the next
+	 * passengers and queues the move there.
+	 * @return whether or not the elevator was sent to park.
+	 */
+	private boolean requestParking() {
+		ParkingPolicy policy = manager.getParkingPolicy();
+		if (parking || policy == null) {
+			return false;
+		}
+		
+		int parkingFloor = policy.selectParkingFloor(manager, elevatorID);
+		if (parkingFloor == -1 || parkingFloor == currentFloor) {
+			return false;
+		}
+		
+		parking = true;
+		departTime = clock.getTime();
+		moveQueue.add(parkingFloor, clock.getTime() + manager.getTravelTimeModel().getTravelTicks(currentFloor, parkingFloor));
+		
+		EventLog.headingToPark(clock.getTime(), elevatorID, parkingFloor);
+		return true;
+	}
+	
+	/**
+	 * @return the last floor a parking elevator has passed since it left currentFloor.
+	 */
+	private int getParkingPosition() {
+		int parkingFloor = moveQueue.getDestination(0);
+		int heading = Integer.signum(parkingFloor - currentFloor);
+		int passed = manager.getTravelTimeModel().getFloorsPassed(currentFloor, heading, clock.getTime() - departTime);
+		return currentFloor + heading * Math.min(passed, Math.abs(parkingFloor - currentFloor));
+	}
+	
+	/**
+	 * PICKUP state. The elevator has arrived at the floor it was sent to and loads passengers.
+	 */
+	private void arriveForPickup() {
+		// Get the floor the elevator needs to head to for pickup.
+		// Taking the event off clears the queue for the DROPOFF events.
+		currentFloor = moveQueue.poll();
+		
+		EventLog.loaded(clock.getTime(), elevatorID, currentFloor);
+		EventTrace.record(clock.getTime(), EventTrace.ARRIVED, elevatorID, currentFloor, -1, 0);
+		// First, we figure out if there are any passengers that want to go UP.
+		// If there are, create elevator events for them ONLY.
+		boardPassengersGoing(1);
+		
+		// If the moveQueue is empty, there were no passengers that want to go UP.
+		// Take care of the passengers that want to go down.
+		if (moveQueue.isEmpty()) {  	// go downwards instead
+			boardPassengersGoing(-1);
+		}
+		
+		// Allow other elevators to come pick up at this floor, in finishStop().
+		holdPickupFloor();
+	}
+	
+	/**
+	 * Boards the passengers at currentFloor that want to go in one direction and that the
+	 * dispatch strategy lets on, creating an ElevatorEvent for each of their destinations.
+	 * @param boardingDirection [in] +1 for passengers going up, -1 for passengers going down.
+	 */
+	private void boardPassengersGoing(int boardingDirection) {
+		if (collectiveControl) {
+			direction = boardingDirection;
+		}
+		
+		for (int i = currentFloor + boardingDirection; i >= 0 && i < manager.getFloorCount() && !isFull(); i += boardingDirection) {
+			if (manager.getPassengerRequests(currentFloor, i) > 0 && manager.shouldBoard(elevatorID, currentFloor, i)) {
+				createElevatorEventForDropoff(i);
+			}
+		}
+	}
+	
+	/**
+	 * Collective control. The elevator has arrived at the next stop in its direction of travel.
+	 * It drops off the passengers for this floor and picks up the passengers going its way.
+	 * After the last stop it turns around like the PICKUP state does.
+	 */
+	private void arriveAtStop() {
+		// Get the floor that the elevator should be at.
+		currentFloor = moveQueue.poll();
+		departTime = clock.getTime();
+		
+		if (passengerDestinations[currentFloor] > 0) {
+			unloadPassengers();
+		}
+		
+		// Only the approaching elevator of a floor and the elevators with a reservation there can pick up.
+		// Passing elevators have to claim the floor first in finishStop(), unless they are full.
+		if (manager.getApproachingElevatorAtFloor(currentFloor) == elevatorID || reservations.getTotalAt(currentFloor) > 0) {
+			boardAtCurrentFloor();
+			holdPickupFloor();
+		}
+		else if (!isFull()) {
+			stopUnclaimed = true;
+			clock.requestStopTurns();
+			return;
+		}
+		
+		if (moveQueue.isEmpty()) {
+			direction = 0;
+		}
+	}
+	
+	/**
+	 * Finishes a stop where the elevator has to change the floor's state. If it picked up there, it releases the floor
+	 * and whoever it couldn't take. If it stopped at a floor it hadn't claimed, with collective control, it claims the
+	 * floor now and picks up there. Called in elevator ID order after every elevator processed its due events,
+	 * and before any elevator asks for a floor.
+	 * @return whether or not the elevator got a floor it stopped at.
+	 */
+	public boolean finishStop() {
+		if (pickupUnreleased) {
+			pickupUnreleased = false;
+			releasePickupFloor();
+		}
+		if (!stopUnclaimed) {
+			return false;
+		}
+		stopUnclaimed = false;
+		
+		boolean claimed = manager.claimFloor(currentFloor, elevatorID);
+		if (claimed) {
+			boardAtCurrentFloor();
+			releasePickupFloor();
+		}
+		if (moveQueue.isEmpty()) {
+			direction = 0;
+		}
+		
+		if (claimed) {
+			updateStatus();
+		}
+		return claimed;
+	}
+	
+	/**
+	 * Keeps the floor the elevator picked up at until finishStop(), where it is released.
+	 */
+	private void holdPickupFloor() {
+		pickupUnreleased = true;
+		clock.requestStopTurns();
+	}
+	
+	/**
+	 * Collective control. Picks up at currentFloor, which the elevator is allowed to.
+	 */
+	private void boardAtCurrentFloor() {
+		EventLog.loaded(clock.getTime(), elevatorID, currentFloor);
+		EventTrace.record(clock.getTime(), EventTrace.ARRIVED, elevatorID, currentFloor, -1, 0);
+		
+		// With more stops ahead, only the passengers going our way get on.
+		if (!moveQueue.isEmpty()) {
+			boardPassengersGoing(direction);
+		}
+		// This was the last stop, so turn around the same way the PICKUP state does.
+		else {
+			boardPassengersGoing(1);
+			if (moveQueue.isEmpty()) {
+				boardPassengersGoing(-1);
+			}
+		}
+	}
+	
+	/**
+	 * Done picking up at currentFloor. Releases whatever is left of the elevator's reservation there
+	 * and stops being the floor's approaching elevator.
+	 */
+	private void releasePickupFloor() {
+		manager.releaseReservations(elevatorID, currentFloor);
+		if (manager.getApproachingElevatorAtFloor(currentFloor) == elevatorID) {
+			manager.clearApproachingElevator(currentFloor);
+		}
+	}
+	
+	/**
+	 * Collective control. Claims every floor ahead of the elevator that has passengers going
+	 * in the direction of travel and adds it to the stop list.
+	 * @return whether or not any stop was added.
+	 */
+	private boolean requestEnRoutePickups() {
+		if (direction == 0 || getFreeCapacity() <= 0) {
+			return false;
+		}
+		
+		// Work out how many floors the elevator has already passed since it left currentFloor.
+		// It can't stop at those anymore.
+		int toNextStop = Math.abs(moveQueue.getDestination(0) - currentFloor);
+		int passed = Math.min(manager.getTravelTimeModel().getFloorsPassed(currentFloor, direction, clock.getTime() - departTime), toNextStop);
+		int floor = nextUnassignedFloorAhead(currentFloor + direction * (passed + 1));
+		
+		boolean added = false;
+		while (floor != -1) {
+			if (manager.getWaitingPassengersGoing(floor, direction) > 0 && manager.claimFloor(floor, elevatorID)) {
+				insertStop(floor);
+				added = true;
+			}
+			floor = nextUnassignedFloorAhead(floor + direction);
+		}
+		
+		return added;
+	}
+	
+	/**
+	 * @param fromFloor [in] the first floor to check.
+	 * @return the first unassigned floor at or after fromFloor in the direction of travel.
+	 * 		   -1 if there is none.
+	 */
+	private int nextUnassignedFloorAhead(int fromFloor) {
+		if (direction > 0) {
+			return manager.nextUnassignedFloor(fromFloor);
+		}
+		
+		return manager.previousUnassignedFloor(fromFloor);
+	}
+	
+	/**
+	 * Collective control. Merges a stop into the moveQueue, which is kept sorted in the
+	 * direction of travel, and moves back the expected arrival of every stop after it.
+	 * @param floor [in] the floor to stop at.
+	 */
+	private void insertStop(int floor) {
+		int index = 0;
+		while (index < moveQueue.size() && direction * (floor - moveQueue.getDestination(index)) > 0) {
+			index++;
+		}
+		
+		// The elevator is already stopping there.
+		if (index < moveQueue.size() && moveQueue.getDestination(index) == floor) {
+			return;
+		}
+		
+		moveQueue.insert(index, floor, 0);
+		
+		// Each stop is reached from the one before it, the first one from currentFloor at departTime.
+		int time = index == 0 ? departTime : moveQueue.getExpectedArrival(index - 1);
+		int from = index == 0 ? currentFloor : moveQueue.getDestination(index - 1);
+		TravelTimeModel model = manager.getTravelTimeModel();
+		for (int i = index; i < moveQueue.size(); i++) {
+			int stop = moveQueue.getDestination(i);
+			time += model.getTravelTicks(from, stop) + estimateDwellTicks(stop);
+			moveQueue.setExpectedArrival(i, time);
+			from = stop;
+		}
+	}
+	
+	/**
+	 * DROPOFF state. The elevator has arrived at a passenger destination and unloads them.
+	 */
+	private void arriveForDropoff() {
+		// Get the floor that the elevator should be at.
+		currentFloor = moveQueue.getDestination(0);
+		
+		unloadPassengers();
+		
+		// Remove this elevatorEvent from the queue.
+		moveQueue.poll();
+	}
+	
+	/**
+	 * Unloads the passengers that requested to go to currentFloor.
+	 */
+	private void unloadPassengers() {
+		// Update the total unloaded passengers at that floor.
+		totalUnloadedPassengers += passengerDestinations[currentFloor];
+		// Remove the passengers from the elevator.
+		numPassengers -= passengerDestinations[currentFloor];
+		
+		// Update the specific building floor's total arrived passengers for this elevator.
+		manager.updateArrivedPassengers(currentFloor, elevatorID, passengerDestinations[currentFloor]);
+		
+		EventLog.unloaded(clock.getTime(), elevatorID, currentFloor, passengerDestinations[currentFloor]);
+		EventTrace.record(clock.getTime(), EventTrace.UNLOADED, elevatorID, currentFloor, -1, passengerDestinations[currentFloor]);
+		
+		// Record how long each of them took to get here.
+		PassengerCohortQueue cohorts = ridingCohorts[currentFloor];
+		while (!cohorts.isEmpty()) {
+			int spawnTime = cohorts.peekSpawnTime();
+			int originFloor = cohorts.peekOriginFloor();
+			int count = cohorts.poll(Integer.MAX_VALUE);
+			manager.getPassengerMetrics().recordJourney(originFloor, elevatorID, clock.getTime() - spawnTime, count);
+			manager.passengersArrived(currentFloor, originFloor, spawnTime, count);
+		}
+		
+		// Clear the passengers that requested to go to currentFloor in the elevator's passengerDestination array.
+		passengerDestinations[currentFloor] = 0;
 	}
 	
 	/**
 	 * Method used to create ElevatorEvents specifically for passenger unloads to 
 	 * be added into the moveQueue.
-	 * @param passengerRequests
 	 * @param floor
 	 */
-	public void createElevatorEventForDropoff(int[] passengerRequests, int floor) {
-		SimClock.printWithTime("There are " + passengerRequests[floor] + " passengers in Elevator " + elevatorID +
-			   " requesting to go to Floor " + floor + ".");
+	public void createElevatorEventForDropoff(int floor) {
+		// Take as many passengers as fit in one step so nobody that spawns meanwhile is lost.
+		if (boardPassengers(floor, capacity - numPassengers) == 0) {
+			return;
+		}
+		
+		if (collectiveControl) {
+			insertStop(floor);
+			return;
+		}
+		
+		// The stops are queued in order going away from currentFloor, so each one is reached from the one before it.
+		int expectedTime = clock.getTime();
+		int from = currentFloor;
+		if (!moveQueue.isEmpty()) {
+			expectedTime = moveQueue.getExpectedArrival(moveQueue.size() - 1);
+			from = moveQueue.getDestination(moveQueue.size() - 1);
+		}
+		expectedTime += manager.getTravelTimeModel().getTravelTicks(from, floor) + estimateDwellTicks(floor);
+		
+		moveQueue.add(floor, expectedTime);
+	}
+	
+	/**
+	 * @param floor [in] a floor the elevator is going to stop at.
+	 * @return the ticks the stop takes for the passengers getting off there, and the passengers
+	 * 		   waiting there if the elevator is the floor's approaching elevator, or else its reservation there.
+	 */
+	private int estimateDwellTicks(int floor) {
+		int passengers = passengerDestinations[floor];
+		if (manager.getApproachingElevatorAtFloor(floor) == elevatorID) {
+			passengers += manager.getWaitingPassengersAtFloor(floor);
+		}
+		else {
+			passengers += reservations.getTotalAt(floor);
+		}
+		
+		return manager.getTravelTimeModel().getDwellTicks(passengers);
+	}
+	
+	/**
+	 * Boards the passengers at the current floor that are going to a floor.
+	 * @param floor [in] the floor the passengers are going to.
+	 * @param maxPassengers [in] the most passengers that can board.
+	 * @return the number of passengers that boarded.
+	 */
+	private int boardPassengers(int floor, int maxPassengers) {
+		int boarding = manager.takePassengerRequests(elevatorID, currentFloor, floor, maxPassengers, ridingCohorts[floor]);
+		if (boarding == 0) {
+			return 0;
+		}
 		
-		passengerDestinations[floor] = passengerRequests[floor];
-		numPassengers += passengerDestinations[floor];
-		totalLoadedPassengers += passengerDestinations[floor];
+		EventLog.passengersBoarded(clock.getTime(), elevatorID, floor, boarding);
+		EventTrace.record(clock.getTime(), EventTrace.BOARDED, elevatorID, currentFloor, floor, boarding);
 		
-		ElevatorEvent newEvent = new ElevatorEvent();
+		// With collective control there may already be passengers going to the same floor.
+		passengerDestinations[floor] += boarding;
+		numPassengers += boarding;
+		totalLoadedPassengers += boarding;
+		return boarding;
+	}
+	
+	/**
+	 * Replays an ARRIVED trace event. Used by TraceReplay.
+	 * @param floor [in] the floor the elevator arrived at.
+	 */
+	public void replayArrival(int floor) {
+		currentFloor = floor;
+	}
+	
+	/**
+	 * Replays a BOARDED trace event. Used by TraceReplay.
+	 * The passengers board, but no ElevatorEvent is planned for them.
+	 * @param floor [in] the floor the passengers board at.
+	 * @param goingToFloor [in] the floor the passengers are going to.
+	 * @param count [in] the number of passengers that boarded.
+	 */
+	public void replayBoarding(int floor, int goingToFloor, int count) {
+		currentFloor = floor;
+		boardPassengers(goingToFloor, count);
+	}
+	
+	/**
+	 * Replays an UNLOADED trace event. Used by TraceReplay.
+	 * @param floor [in] the floor the passengers got off at.
+	 */
+	public void replayUnloading(int floor) {
+		currentFloor = floor;
+		unloadPassengers();
+	}
+	
+	/**
+	 * Writes the elevator's state for a SimulationSnapshot. The capacity is a setting and is not written,
+	 * so a resumed simulation can try out another one. Collective control is written, since the
+	 * moveQueue only makes sense with the control it was planned with.
+	 * @param out [in] the snapshot stream.
+	 */
+	public void writeState(DataOutputStream out) throws IOException {
+		out.writeInt(currentFloor);
+		out.writeInt(numPassengers);
+		out.writeInt(totalLoadedPassengers);
+		out.writeInt(totalUnloadedPassengers);
+		out.writeBoolean(collectiveControl);
+		out.writeInt(direction);
+		out.writeInt(departTime);
+		out.writeBoolean(parking);
 		
-		newEvent.setDestination(floor);
+		out.writeInt(moveQueue.size());
+		for (int i = 0; i < moveQueue.size(); i++) {
+			out.writeInt(moveQueue.getDestination(i));
+			out.writeInt(moveQueue.getExpectedArrival(i));
+		}
+		for (int i = 0; i < passengerDestinations.length; i++) {
+			out.writeInt(passengerDestinations[i]);
+			ridingCohorts[i].writeState(out);
+		}
+		reservations.writeState(out);
+		out.writeLong(busyTicks);
+		out.writeInt(busySince);
+	}
+	
+	/**
+	 * Replaces the elevator's state with the one written by writeState().
+	 * @param in [in] the snapshot stream.
+	 */
+	public void readState(DataInputStream in) throws IOException {
+		currentFloor = in.readInt();
+		numPassengers = in.readInt();
+		totalLoadedPassengers = in.readInt();
+		totalUnloadedPassengers = in.readInt();
+		collectiveControl = in.readBoolean();
+		direction = in.readInt();
+		departTime = in.readInt();
+		parking = in.readBoolean();
 		
-		int expectedTime = SimClock.getTime() + Math.abs(floor - currentFloor) * traversalTime;
-		expectedTime += loadUnloadTime;
-		expectedTime += moveQueue.size() * loadUnloadTime;
+		moveQueue.clear();
+		int events = in.readInt();
+		for (int i = 0; i < events; i++) {
+			moveQueue.add(in.readInt(), in.readInt());
+		}
+		for (int i = 0; i < passengerDestinations.length; i++) {
+			passengerDestinations[i] = in.readInt();
+			ridingCohorts[i].readState(in);
+		}
+		reservations.readState(in);
+		busyTicks = in.readLong();
+		busySince = in.readInt();
 		
-		newEvent.setExpectedArrival(expectedTime);
+		status = moveQueue.isEmpty() ? Status.IDLE : parking ? Status.PARKING : numPassengers == 0 ? Status.PICKUP : Status.DROPOFF;
+	}
+	
+	/**
+	 * Estimates when this elevator could arrive at a floor to pick up passengers,
+	 * after it is done with everything in its moveQueue.
+	 * @param floor [in] the pickup floor.
+	 * @return the estimated SimClock time of arrival.
+	 */
+	public int estimateArrivalTime(int floor) {
+		int time = clock.getTime();
+		int from = currentFloor;
 		
-		moveQueue.add(newEvent);
+		// A parking elevator counts as if it's already at its parking floor. Where it really is
+		// changes every tick, and the discrete-event mode only looks at events, so the estimate
+		// can't depend on that or the two modes would dispatch differently.
+		if (parking) {
+			from = moveQueue.getDestination(0);
+		}
+		else if (!moveQueue.isEmpty()) {
+			int last = moveQueue.size() - 1;
+			time = Math.max(time, moveQueue.getExpectedArrival(last));
+			from = moveQueue.getDestination(last);
+		}
 		
-		manager.clearPassengerRequests(currentFloor, floor);
+		TravelTimeModel model = manager.getTravelTimeModel();
+		int boarding = Math.min(manager.getWaitingPassengersAtFloor(floor), capacity);
+		return time + model.getTravelTicks(from, floor) + model.getDwellTicks(boarding);
+	}
+	
+	/**
+	 * @returns whether or not the elevator is at capacity.
+	 */
+	public boolean isFull() {
+		return numPassengers >= capacity;
+	}
+	
+	/**
+	 * @returns how many more passengers the elevator has room for, after the ones it has reserved.
+	 */
+	public int getFreeCapacity() {
+		return capacity - numPassengers - reservations.getTotal();
+	}
+	
+	/**
+	 * Only used by the BuildingManager, while this elevator claims a floor.
+	 * @returns the waiting passengers this elevator has reserved.
+	 */
+	public PickupReservations getReservations() {
+		return reservations;
+	}
+	
+	/**
+	 * @returns +1 if the elevator is going up, -1 if it is going down, 0 if it is IDLE
+	 * 			or doesn't use collective control.
+	 */
+	public int getDirection() {
+		return direction;
+	}
+	
+	/**
+	 * @returns the floor the elevator was last at.
+	 */
+	public int getCurrentFloor() {
+		return currentFloor;
+	}
+	
+	/**
+	 * @returns whether or not the elevator is in IDLE state, including on its way to park.
+	 */
+	public boolean isIdle() {
+		return moveQueue.isEmpty() || parking;
+	}
+	
+	/**
+	 * @returns the floor the elevator is parking at if it is on its way to park, otherwise currentFloor.
+	 */
+	public int getParkingFloor() {
+		return parking ? moveQueue.getDestination(0) : currentFloor;
 	}
 	
 	/**
@@ -207,4 +825,26 @@ public class Elevator implements Runnable
 	public int getNumPassengers() {
 		return numPassengers;
 	}
+	
+	/**
+	 * Thread safe. May be a tick behind while the elevator is working.
+	 * @return the elevator's status as of its last state change.
+	 */
+	public Status getStatus() {
+		return status;
+	}
+	
+	/**
+	 * Thread safe. May be a tick behind while the elevator is working.
+	 * @return the share of the simulation so far that the elevator was not IDLE, from 0 to 1.
+	 */
+	public double getUtilization() {
+		int now = clock.getTime();
+		long busy = busyTicks;
+		if (status != Status.IDLE) {
+			busy += now - busySince;
+		}
+		
+		return now <= 0 ? 0 : Math.min(1.0, (double) busy / now);
+	}
 }
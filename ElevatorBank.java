@@ -0,0 +1,252 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * One bank of a ZonedSimulation: a group of elevators that only serves some of the building's floors,
+ * with its own BuildingManager, SimClock and EventScheduler. The manager and the elevators number the bank's
+ * floors 0 to n - 1 from the bottom up, so they work the same as in a building of their own.
+ * Everything coming in or going out of the bank is in building floors.
+ *
+ * Passengers that have to change banks ride this bank to a transfer floor like anybody else. They are kept
+ * track of by where they got on, when they spawned and where they get off, which is all their cohort knows.
+ * Passengers with the same three are interchangeable, so when such a cohort gets off, the ones that change
+ * banks are counted first. They become handoffs, which the ZonedSimulation sends on to the next bank
+ * after the window the bank is running in.
+ */
+public class ElevatorBank implements ArrivalListener
+{
+	private String name;
+	private int[] buildingFloors;
+	private int[] bankFloors;
+	private BuildingManager manager;
+	private Elevator[] elevators;
+	private BankArrivals arrivals;
+	private EventScheduler scheduler;
+
+	// The final destinations of the passengers that change banks at one of this bank's floors.
+	// Keyed by bank floor they got on, spawn time and bank floor they get off. Each entry is { destination, count }.
+	private HashMap<Long, ArrayDeque<int[]>> transfers;
+
+	// The passengers that got off to change banks during the current window, in the order they got off.
+	private int handoffCount;
+	private int[] handoffTimes;
+	private int[] handoffFloors;
+	private int[] handoffDestinations;
+	private int[] handoffPassengers;
+
+	/**
+	 * Constructor that creates the bank's building manager and elevators.
+	 * @param iName [in] the name of the bank.
+	 * @param floors [in] the building floors the bank serves, from the bottom up.
+	 * @param buildingFloorCount [in] the number of building floors.
+	 * @param elevatorCount [in] the number of elevators in the bank.
+	 */
+	public ElevatorBank(String iName, int[] floors, int buildingFloorCount, int elevatorCount)
+	{
+		name = iName;
+		buildingFloors = floors;
+		bankFloors = new int[buildingFloorCount];
+		Arrays.fill(bankFloors, -1);
+		for (int i = 0; i < floors.length; i++) {
+			bankFloors[floors[i]] = i;
+		}
+
+		manager = new BuildingManager(floors.length, elevatorCount);
+		manager.setTravelTimeModel(TravelTimeModel.classic(buildingFloorCount).forFloors(floors));
+		manager.setArrivalListener(this);
+		elevators = new Elevator[elevatorCount];
+		for (int i = 0; i < elevatorCount; i++) {
+			elevators[i] = new Elevator(i, manager);
+		}
+		arrivals = new BankArrivals();
+		scheduler = new EventScheduler(manager, elevators, new ArrivalSource[] { arrivals });
+		transfers = new HashMap<Long, ArrayDeque<int[]>>();
+
+		handoffTimes = new int[16];
+		handoffFloors = new int[16];
+		handoffDestinations = new int[16];
+		handoffPassengers = new int[16];
+		manager.publishView();
+	}
+
+	/**
+	 * @return the name of the bank.
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * @return the building floors the bank serves, from the bottom up. Bank floor i is building floor getFloors()[i].
+	 */
+	public int[] getFloors()
+	{
+		return buildingFloors;
+	}
+
+	/**
+	 * @return the bank's building manager, which numbers its floors 0 to getFloors().length - 1.
+	 */
+	public BuildingManager getBuildingManager()
+	{
+		return manager;
+	}
+
+	/**
+	 * @return the elevators of the bank.
+	 */
+	public Elevator[] getElevators()
+	{
+		return elevators;
+	}
+
+	/**
+	 * Sends passengers to the bank. Only call this between windows.
+	 * @param time [in] the SimClock time they turn up. Must not be before the bank's clock.
+	 * @param floor [in] the building floor they get on at.
+	 * @param exitFloor [in] the building floor they get off at.
+	 * @param destination [in] the building floor they are going to, not exitFloor if they change banks there.
+	 * @param count [in] the number of passengers.
+	 */
+	public void addPassengers(int time, int floor, int exitFloor, int destination, int count)
+	{
+		arrivals.add(time, bankFloors[floor], bankFloors[exitFloor], count);
+		if (exitFloor != destination) {
+			transfers.computeIfAbsent(transferKey(bankFloors[floor], time, bankFloors[exitFloor]), key -> new ArrayDeque<int[]>())
+					 .add(new int[] { destination, count });
+		}
+	}
+
+	/**
+	 * Runs the bank on the calling thread until the end of a window.
+	 * @param endTime [in] the last SimClock time of the window.
+	 */
+	public void run(int endTime)
+	{
+		scheduler.run(endTime);
+	}
+
+	/**
+	 * Counts the passengers that change banks out of a cohort that got off. Only ever called on the bank's thread.
+	 */
+	@Override
+	public void passengersArrived(int floor, int originFloor, int spawnTime, int count)
+	{
+		if (transfers.isEmpty()) {
+			return;
+		}
+
+		Long key = transferKey(originFloor, spawnTime, floor);
+		ArrayDeque<int[]> waiting = transfers.get(key);
+		while (waiting != null && count > 0) {
+			int[] transfer = waiting.peek();
+			int passengers = Math.min(transfer[1], count);
+			addHandoff(manager.getClock().getTime(), buildingFloors[floor], transfer[0], passengers);
+
+			count -= passengers;
+			transfer[1] -= passengers;
+			if (transfer[1] == 0) {
+				waiting.poll();
+				if (waiting.isEmpty()) {
+					transfers.remove(key);
+					waiting = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the number of handoffs since clearHandoffs().
+	 */
+	public int getHandoffCount()
+	{
+		return handoffCount;
+	}
+
+	/**
+	 * @param index [in] the handoff, 0 to getHandoffCount() - 1.
+	 * @return the SimClock time its passengers got off.
+	 */
+	public int getHandoffTime(int index)
+	{
+		return handoffTimes[index];
+	}
+
+	/**
+	 * @param index [in] the handoff, 0 to getHandoffCount() - 1.
+	 * @return the building floor its passengers got off at.
+	 */
+	public int getHandoffFloor(int index)
+	{
+		return handoffFloors[index];
+	}
+
+	/**
+	 * @param index [in] the handoff, 0 to getHandoffCount() - 1.
+	 * @return the building floor its passengers are going to.
+	 */
+	public int getHandoffDestination(int index)
+	{
+		return handoffDestinations[index];
+	}
+
+	/**
+	 * @param index [in] the handoff, 0 to getHandoffCount() - 1.
+	 * @return its number of passengers.
+	 */
+	public int getHandoffPassengers(int index)
+	{
+		return handoffPassengers[index];
+	}
+
+	/**
+	 * Forgets the handoffs once they are sent on. Only call this between windows.
+	 */
+	public void clearHandoffs()
+	{
+		handoffCount = 0;
+	}
+
+	/**
+	 * @return the number of passengers sent to the bank that haven't turned up yet.
+	 */
+	public int getIncomingPassengers()
+	{
+		return arrivals.getPassengerCount();
+	}
+
+	/**
+	 * Adds a handoff to the list.
+	 */
+	private void addHandoff(int time, int floor, int destination, int passengers)
+	{
+		if (handoffCount == handoffTimes.length) {
+			int capacity = handoffCount * 2;
+			handoffTimes = Arrays.copyOf(handoffTimes, capacity);
+			handoffFloors = Arrays.copyOf(handoffFloors, capacity);
+			handoffDestinations = Arrays.copyOf(handoffDestinations, capacity);
+			handoffPassengers = Arrays.copyOf(handoffPassengers, capacity);
+		}
+
+		handoffTimes[handoffCount] = time;
+		handoffFloors[handoffCount] = floor;
+		handoffDestinations[handoffCount] = destination;
+		handoffPassengers[handoffCount] = passengers;
+		handoffCount++;
+	}
+
+	/**
+	 * @return the key of the passengers that got on at a bank floor at a time and get off at another bank floor.
+	 */
+	private long transferKey(int floor, int spawnTime, int exitFloor)
+	{
+		return ((long) spawnTime * buildingFloors.length + floor) * buildingFloors.length + exitFloor;
+	}
+}
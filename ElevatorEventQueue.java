@@ -0,0 +1,151 @@
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * The moveQueue of an Elevator: its ElevatorEvents in order, each a destination floor and the
+ * expected SimClock time of arrival there. The events are kept in a ring buffer of two int arrays
+ * instead of as objects, so planning and finishing events allocates nothing and taking the first
+ * event off is O(1). Collective control inserts stops in the middle, which shifts the later events
+ * along by one. The buffer starts with room for a stop at every floor and only grows if that is not enough.
+ */
+public class ElevatorEventQueue
+{
+	private int[] destinations;
+	private int[] expectedArrivals;
+	private int head;
+	private int size;
+
+	/**
+	 * Default constructor for an empty queue.
+	 * @param initialCapacity [in] how many events fit before the queue has to grow, at least 1.
+	 */
+	public ElevatorEventQueue(int initialCapacity)
+	{
+		destinations = new int[Math.max(initialCapacity, 1)];
+		expectedArrivals = new int[destinations.length];
+	}
+
+	/**
+	 * @return whether or not the queue has no events.
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * @return the number of events.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Adds an event at the end of the queue.
+	 * @param destination [in] the floor to go to.
+	 * @param expectedArrival [in] the SimClock time the elevator is done at the floor.
+	 */
+	public void add(int destination, int expectedArrival)
+	{
+		insert(size, destination, expectedArrival);
+	}
+
+	/**
+	 * Inserts an event before the event at an index, moving it and every later event back by one.
+	 * @param index [in] the index of the new event, 0 to size().
+	 * @param destination [in] the floor to go to.
+	 * @param expectedArrival [in] the SimClock time the elevator is done at the floor.
+	 */
+	public void insert(int index, int destination, int expectedArrival)
+	{
+		if (size == destinations.length) {
+			grow();
+		}
+
+		for (int i = size; i > index; i--) {
+			destinations[slot(i)] = destinations[slot(i - 1)];
+			expectedArrivals[slot(i)] = expectedArrivals[slot(i - 1)];
+		}
+		destinations[slot(index)] = destination;
+		expectedArrivals[slot(index)] = expectedArrival;
+		size++;
+	}
+
+	/**
+	 * Takes the first event off the queue. The queue must not be empty.
+	 * @return the destination of the event.
+	 */
+	public int poll()
+	{
+		int destination = destinations[head];
+		head = slot(1);
+		size--;
+		return destination;
+	}
+
+	/**
+	 * @param index [in] the index of the event, 0 for the first one.
+	 * @return the floor the event goes to.
+	 */
+	public int getDestination(int index)
+	{
+		return destinations[slot(index)];
+	}
+
+	/**
+	 * @param index [in] the index of the event, 0 for the first one.
+	 * @return the SimClock time the elevator is done at the event's floor.
+	 */
+	public int getExpectedArrival(int index)
+	{
+		return expectedArrivals[slot(index)];
+	}
+
+	/**
+	 * @param index [in] the index of the event, 0 for the first one.
+	 * @param expectedArrival [in] the new SimClock time the elevator is done at the event's floor.
+	 */
+	public void setExpectedArrival(int index, int expectedArrival)
+	{
+		expectedArrivals[slot(index)] = expectedArrival;
+	}
+
+	/**
+	 * Removes every event.
+	 */
+	public void clear()
+	{
+		head = 0;
+		size = 0;
+	}
+
+	/**
+	 * @param index [in] the index of an event.
+	 * @return where the event is in the ring buffer.
+	 */
+	private int slot(int index)
+	{
+		int slot = head + index;
+		return slot < destinations.length ? slot : slot - destinations.length;
+	}
+
+	/**
+	 * Doubles the size of the ring buffer, unwrapping it so the first event is first.
+	 */
+	private void grow()
+	{
+		int[] newDestinations = new int[destinations.length * 2];
+		int[] newExpectedArrivals = new int[destinations.length * 2];
+		for (int i = 0; i < size; i++) {
+			newDestinations[i] = destinations[slot(i)];
+			newExpectedArrivals[i] = expectedArrivals[slot(i)];
+		}
+
+		destinations = newDestinations;
+		expectedArrivals = newExpectedArrivals;
+		head = 0;
+	}
+}
@@ -4,137 +4,393 @@
  * @author Matthew Robinson 73641908
  */
 
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Scanner;
 
 /**
  * Main simulation thread of the program.
  */
 public class ElevatorSimulation
 {
-	// Amount of elevators in the building.
-	public static final int MAX_ELEVATORS = 5;
+	// Default amount of elevators in the building.
+	public static final int DEFAULT_ELEVATORS = 5;
 	
 	// Data Members
 	private BuildingManager manager;
 	private Elevator[] elevatorObjects;
+	private boolean discreteEvent;
+	private boolean sleepEnabled;
+	private boolean virtualThreads;
+	private String configFileName;
+	private String kinematicsFileName;
+	private String traceFileName;
+	private String resumeFileName;
+	private String snapshotFileName;
+	private int snapshotTime;
+	private int metricsPort;
+	private TrafficGenerator.Profile trafficProfile;
+	private double trafficRate;
+	private long trafficSeed;
+	private int dayLength = DemandForecaster.DEFAULT_DAY_LENGTH;
+	
+	// Data read in from the config file.
+	private int simulationLength;
+	private int simulatedSecondRate;
+	private ArrayList<ArrivalSource> arrivals;
 	
 	/**
-	 * Default constructor that creates the elevator objects and building manager.
+	 * Default constructor that creates the elevator objects and building manager
+	 * for the default building size.
 	 */
 	public ElevatorSimulation() {
-		manager = new BuildingManager();
-		elevatorObjects = new Elevator[MAX_ELEVATORS];
-		for (int i = 0; i < MAX_ELEVATORS; i++) {
+		this(BuildingManager.DEFAULT_FLOOR_COUNT, DEFAULT_ELEVATORS);
+	}
+	
+	/**
+	 * Constructor that creates the elevator objects and building manager.
+	 * @param floorCount [in] the number of building floors.
+	 * @param elevatorCount [in] the number of elevators in the building.
+	 */
+	public ElevatorSimulation(int floorCount, int elevatorCount) {
+		discreteEvent = false;
+		sleepEnabled = true;
+		configFileName = "ElevatorConfig.txt";
+		metricsPort = -1;
+		manager = new BuildingManager(floorCount, elevatorCount);
+		elevatorObjects = new Elevator[elevatorCount];
+		for (int i = 0; i < elevatorCount; i++) {
 			elevatorObjects[i] = new Elevator(i, manager);
 		}
+		manager.publishView();
+	}
+	
+	/**
+	 * Selects how the simulation is run.
+	 * @param iDiscreteEvent [in] true to jump from event to event on the main thread,
+	 * 							  false to run one thread per elevator against the wall clock.
+	 */
+	public void setDiscreteEvent(boolean iDiscreteEvent) {
+		discreteEvent = iDiscreteEvent;
+	}
+	
+	/**
+	 * Runs the elevators of the threaded mode on virtual threads instead of one platform thread each,
+	 * so hundreds of elevators (or many simulations) can share a few carrier threads.
+	 * The carrier pool is sized with the jdk.virtualThreadScheduler.parallelism system property.
+	 * Virtual threads need Java 21. On older Java the elevators fall back to platform threads.
+	 * @param iVirtualThreads [in] true for virtual threads.
+	 */
+	public void setVirtualThreads(boolean iVirtualThreads) {
+		virtualThreads = iVirtualThreads;
+	}
+	
+	/**
+	 * Sets the config file read by start(). "ElevatorConfig.txt" by default.
+	 * @param fileName [in] path of the config file.
+	 */
+	public void setConfigFile(String fileName) {
+		configFileName = fileName;
+	}
+	
+	/**
+	 * Sets the TravelTimeModel properties file read by start(). Without one the elevators use the
+	 * classic model of 5 ticks per floor and 10 ticks per stop.
+	 * @param fileName [in] path of the kinematics file, null for the classic model.
+	 */
+	public void setKinematicsFile(String fileName) {
+		kinematicsFileName = fileName;
+	}
+	
+	/**
+	 * Turns on the binary EventTrace for start().
+	 * @param fileName [in] path of the trace file, null for no trace.
+	 */
+	public void setTraceFile(String fileName) {
+		traceFileName = fileName;
+	}
+	
+	/**
+	 * Writes a SimulationSnapshot during start(), when the SimClock gets to a time.
+	 * Everything before that time has happened and nothing at that time has.
+	 * @param time [in] the SimClock time to write the snapshot at.
+	 * @param fileName [in] path of the snapshot file, null for no snapshot.
+	 */
+	public void setSnapshot(int time, String fileName) {
+		snapshotTime = time;
+		snapshotFileName = fileName;
+	}
+	
+	/**
+	 * Serves live SimulationMetrics while start() runs, on a local HTTP endpoint and as a JMX MBean.
+	 * @param port [in] the HTTP port, 0 for any free port, -1 for no live metrics.
+	 */
+	public void setMetricsPort(int port) {
+		metricsPort = port;
+	}
+	
+	/**
+	 * Makes start() resume a SimulationSnapshot instead of reading the config file.
+	 * The building must be the size of the snapshot, see forSnapshot().
+	 * The simulation length and arrivals come from the snapshot. Traffic set with setTraffic()
+	 * replaces the snapshot's random traffic from the snapshot time on, so what-if runs resumed
+	 * from one snapshot can each get their own passengers.
+	 * @param fileName [in] path of the snapshot file, null to start from the config file.
+	 */
+	public void setResumeFile(String fileName) {
+		resumeFileName = fileName;
+	}
+	
+	/**
+	 * Creates a simulation the size of a snapshot that resumes it when started.
+	 * @param fileName [in] path of the snapshot file.
+	 * @return the simulation.
+	 * @throws ConfigException if the snapshot can't be read.
+	 */
+	public static ElevatorSimulation forSnapshot(String fileName) {
+		int[] size;
+		try {
+			size = SimulationSnapshot.readBuildingSize(fileName);
+		}
+		catch (IOException e) {
+			throw new ConfigException("Cannot read snapshot file " + fileName + ": " + e.getMessage(), e);
+		}
+		
+		ElevatorSimulation es = new ElevatorSimulation(size[0], size[1]);
+		es.setResumeFile(fileName);
+		return es;
+	}
+	
+	/**
+	 * Adds random passenger traffic on top of the arrivals in the config file.
+	 * @param profile [in] the traffic profile, null for no random traffic.
+	 * @param rate [in] the average number of passengers per tick at the busiest time.
+	 * @param seed [in] the random seed. The same seed gives the same passengers.
+	 */
+	public void setTraffic(TrafficGenerator.Profile profile, double rate, long seed) {
+		trafficProfile = profile;
+		trafficRate = rate;
+		trafficSeed = seed;
+	}
+	
+	/**
+	 * Selects how idle elevators are sent to floors.
+	 * @param strategy [in] the dispatch strategy.
+	 */
+	public void setDispatchStrategy(DispatchStrategy strategy) {
+		manager.setDispatchStrategy(strategy);
+	}
+	
+	/**
+	 * Selects where idle elevators wait when there is no floor to send them to.
+	 * @param policy [in] the parking policy, null for elevators to stay where they are.
+	 */
+	public void setParkingPolicy(ParkingPolicy policy) {
+		manager.setParkingPolicy(policy);
+	}
+	
+	/**
+	 * Sets how long a day is for the random traffic's profile, and for the DemandForecaster so it can learn the traffic by time of day.
+	 * @param iDayLength [in] the ticks the traffic takes to repeat itself.
+	 */
+	public void setDayLength(int iDayLength) {
+		manager.setDayLength(iDayLength);
+		dayLength = iDayLength;
+	}
+	
+	/**
+	 * Sets the capacity of every elevator.
+	 * @param capacity [in] the most passengers an elevator can carry.
+	 */
+	public void setCapacity(int capacity) {
+		for (Elevator e : elevatorObjects) {
+			e.setCapacity(capacity);
+		}
+	}
+	
+	/**
+	 * Turns SCAN/LOOK collective control on or off for every elevator.
+	 * @param collectiveControl [in] true for elevators to pick up passengers en route.
+	 */
+	public void setCollectiveControl(boolean collectiveControl) {
+		for (Elevator e : elevatorObjects) {
+			e.setCollectiveControl(collectiveControl);
+		}
 	}
 	
 	/**
-	 * Starts the simulation.
+	 * Sets whether or not the threaded mode sleeps simulatedSecondRate milliseconds every tick.
+	 * Without the sleep the elevators still move tick by tick, just as fast as they can.
+	 * @param iSleepEnabled [in] false to run without sleeping.
+	 */
+	public void setSleepEnabled(boolean iSleepEnabled) {
+		sleepEnabled = iSleepEnabled;
+	}
+	
+	/**
+	 * Starts the simulation, or resumes it from a snapshot.
+	 * @throws ConfigException if the config file, the kinematics file or the snapshot can't be read or has a mistake in it.
 	 */
 	public void start()
 	{
-		// Read in a configuration file called "ElevatorConfig.txt"
-		Scanner configScanner = null;
-		String fileName = "ElevatorConfig.txt";
-		try
-		{
-			configScanner = new Scanner(new File(fileName));
+		if (kinematicsFileName != null) {
+			manager.setTravelTimeModel(TravelTimeModel.load(kinematicsFileName, manager.getFloorCount()));
 		}
-		catch (FileNotFoundException e)
-		{
-			System.out.println("Matthew Says: Cannot find file " + fileName);
+		if (resumeFileName != null) {
+			resume();
+		}
+		else {
+			SimulationConfig config = SimulationConfig.load(configFileName, manager.getFloorCount());
+			simulationLength = config.getSimulationLength();
+			simulatedSecondRate = config.getSimulatedSecondRate();
+			arrivals = new ArrayList<ArrivalSource>();
+			arrivals.add(new ArrivalQueue(config.getArrivals()));
+			if (trafficProfile != null) {
+				arrivals.add(new TrafficGenerator(trafficProfile, trafficRate, trafficSeed, manager.getFloorCount(), dayLength, simulationLength));
+			}
+			manager.getClock().reset();
+		}
+		EventLog.reset();
+		if (traceFileName != null) {
+			try {
+				EventTrace.open(traceFileName, manager.getFloorCount(), elevatorObjects.length);
+			}
+			catch (IOException e) {
+				System.out.println("Cannot write trace file " + traceFileName + ": " + e.getMessage());
+			}
 		}
 		
-		// Calculate the simulationLength and secondRate from the config file.
-		int simulationLength;
-		int simulatedSecondRate;
-		
-		simulationLength = configScanner.nextInt();
-		configScanner.nextLine();
+		// Start readers off with the state the simulation starts from.
+		manager.publishView();
 		
-		simulatedSecondRate = configScanner.nextInt();
-		configScanner.nextLine();
+		SimulationMetrics metrics = null;
+		if (metricsPort >= 0) {
+			metrics = new SimulationMetrics(manager);
+			try {
+				metrics.start(metricsPort);
+				System.out.println("Serving metrics on http://localhost:" + metrics.getPort() + "/metrics");
+			}
+			catch (IOException e) {
+				System.out.println("Cannot serve metrics on port " + metricsPort + ": " + e.getMessage());
+			}
+		}
 		
-		// Take each of the lines and store it into configInput
-		ArrayList<ArrayList<String>> configInput = new ArrayList<ArrayList<String>>();
-		for (int i = 0; i < MAX_ELEVATORS; i++) {
-			String nextLine = configScanner.nextLine();  // Get the line
-			configInput.add(new ArrayList<String>(Arrays.asList(nextLine.split(";"))));
+		if (discreteEvent) {
+			EventScheduler scheduler = new EventScheduler(manager, elevatorObjects, arrivals.toArray(new ArrivalSource[0]));
+			if (snapshotFileName != null && snapshotTime >= manager.getClock().getTime() && snapshotTime <= simulationLength) {
+				// Stop just before the snapshot time. That leaves the clock at the snapshot time.
+				scheduler.run(snapshotTime - 1);
+				saveSnapshot();
+			}
+			scheduler.run(simulationLength);
+		}
+		else {
+			startThreads();
 		}
 		
-		// Close the scanner as we read all the data in.
-		configScanner.close();
+		if (metrics != null) {
+			metrics.stop();
+		}
+		manager.publishView();
+		EventTrace.close();
+	}
+	
+	/**
+	 * Restores the building, the elevators and the arrivals from the resume file.
+	 * @throws ConfigException if the snapshot can't be read or doesn't fit the building.
+	 */
+	private void resume()
+	{
+		SimulationSnapshot snapshot;
+		try {
+			snapshot = SimulationSnapshot.read(resumeFileName, manager, elevatorObjects);
+		}
+		catch (IOException e) {
+			throw new ConfigException("Cannot read snapshot file " + resumeFileName + ": " + e.getMessage(), e);
+		}
 		
-		// After we have the lines in configInput, we can parse it properly.
-		ArrayList<ArrayList<PassengerArrival>> arrivalList = new ArrayList<ArrayList<PassengerArrival>>();
-		for (int i = 0; i < configInput.size(); i++) {
-			ArrayList<PassengerArrival> tempListPa = new ArrayList<PassengerArrival>();
-			
-			for (int j = 0; j < configInput.get(i).size(); j++) {
-				String[] tempString = configInput.get(i).get(j).split(" ");
-				
-				
-				// Create appropriate passenger arrival objects based on data.
-				PassengerArrival tempPa = new PassengerArrival(
-										  Integer.parseInt(tempString[0]), Integer.parseInt(tempString[1]), Integer.parseInt(tempString[2]));
-				
-				tempListPa.add(tempPa);
-			}
-			
-			// Add it into our arrivalList
-			arrivalList.add(tempListPa);
+		simulationLength = snapshot.getSimulationLength();
+		simulatedSecondRate = snapshot.getSimulatedSecondRate();
+		arrivals = snapshot.getArrivals();
+		if (trafficProfile != null) {
+			// New traffic replaces the snapshot's from here on.
+			arrivals.removeIf(source -> source instanceof TrafficGenerator);
+			arrivals.add(new TrafficGenerator(trafficProfile, trafficRate, trafficSeed, manager.getFloorCount(), dayLength,
+											  simulationLength, manager.getClock().getTime()));
 		}
+	}
+	
+	/**
+	 * Writes the snapshot file. Only called between ticks.
+	 */
+	private void saveSnapshot()
+	{
+		try {
+			SimulationSnapshot.write(snapshotFileName, manager, elevatorObjects, arrivals, simulationLength, simulatedSecondRate);
+		}
+		catch (IOException e) {
+			System.out.println("Cannot write snapshot file " + snapshotFileName + ": " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Runs the simulation with one thread per elevator, ticking the SimClock
+	 * every simulatedSecondRate milliseconds.
+	 */
+	private void startThreads()
+	{
+		SimClock clock = manager.getClock();
 		
 		// Create a list of elevator object threads
 		ArrayList<Thread> threadList = new ArrayList<Thread>();
-		for (int i = 0; i < MAX_ELEVATORS; i++) {
-			threadList.add(new Thread(elevatorObjects[i]));
+		for (int i = 0; i < elevatorObjects.length; i++) {
+			threadList.add(virtualThreads ? ElevatorThreads.newVirtualThread(elevatorObjects[i], "Elevator " + i)
+										  : new Thread(elevatorObjects[i], "Elevator " + i));
 		}
 		
+		// The elevators wait on the clock, so it has to be set up before they start.
+		clock.startTicking(threadList.size());
+		
 		// Start all of the elevators
 		for (Thread t : threadList) {
 			t.start();
 		}
 		
 		// While we haven't passed our simulationLength 
-		while (SimClock.getTime() <= simulationLength) {
-			// For each building floor
-			for (int i = 0; i < arrivalList.size(); i++) {
-				// For each passengerArrival in a building floor
-				for (int j = 0; j < arrivalList.get(i).size(); j++) {
-					// Get the info
-					PassengerArrival info = arrivalList.get(i).get(j);
-					
-					// If it is time to spawn passengers
-					if (info.getExpectedTimeOfArrival() == SimClock.getTime()) {
-						// Spawn the passengers
-						manager.spawnPassengers(i, info.getDestinationFloor(), info.getNumPassengers());
-						
-						// And update the next expected time of arrival
-						info.setExpectedTimeOfArrival(info.getTimePeriod() + info.getExpectedTimeOfArrival());
-					}
-				}
+		while (clock.getTime() <= simulationLength) {
+			// The elevators are parked between ticks, so this is where the snapshot is taken.
+			if (snapshotFileName != null && clock.getTime() == snapshotTime) {
+				saveSnapshot();
 			}
 			
-			try {
-				// Sleep based on simulatedSecondRate
-				Thread.sleep(simulatedSecondRate);
+			// Spawn the passengers that arrive on this tick.
+			for (ArrivalSource source : arrivals) {
+				source.spawnDueArrivals(manager);
+			}
+			
+			// Let the elevators work on this tick and wait until all of them are done.
+			// If any elevator changed state it may have freed up a floor for another one,
+			// so the same tick is released again until nothing changes.
+			do {
+				clock.releaseTick();
+			} while (clock.awaitTickDone());
+			
+			// The elevators are parked until the next tick, so this is a consistent view of the tick.
+			manager.publishViewIfRequested();
+			
+			if (sleepEnabled && simulatedSecondRate > 0) {
+				try {
+					// Sleep based on simulatedSecondRate
+					Thread.sleep(simulatedSecondRate);
+				}
+				catch (InterruptedException e) { } 
 			}
-			catch (InterruptedException e) { } 
 			
 			// Tick the clock
-			SimClock.tick();
+			clock.tick();
 		}
 		
-		// When we pass the simulation duration time, interrupt all of the threads.
-		for (Thread t : threadList) {
-			t.interrupt();
-		}
+		// When we pass the simulation duration time, stop the clock so all of the threads exit.
+		clock.stopTicking();
 		
 		try {
 			// Wait for all elevator events to finish their last cycle before continuing.
@@ -149,9 +405,30 @@ public class ElevatorSimulation
 	}
 	
 	/**
-	 * Prints the entire building state. Especially called after the simulation is over.
+	 * @return the building manager shared by the elevators.
+	 */
+	public BuildingManager getBuildingManager() {
+		return manager;
+	}
+	
+	/**
+	 * @return the wait and journey times of the passengers.
+	 */
+	public PassengerMetrics getPassengerMetrics() {
+		return manager.getPassengerMetrics();
+	}
+	
+	/**
+	 * Prints the entire building state. Only called while the elevators are parked, e.g. after the simulation is over.
+	 * Prints nothing when the EventLog is off.
 	 */
 	public void printBuildingState() {
+		if (EventLog.getLevel() == EventLog.Level.OFF) {
+			return;
+		}
+		// Make sure every logged event is out before the summary.
+		EventLog.flush();
+		
 		//BUILDING INFO
 		//total number of passengers requesting elevator access on the floor -- destination requests
 		//total number of passengers that exited an elevator on the floor -- arrivedPassengers
@@ -160,29 +437,21 @@ public class ElevatorSimulation
 		System.out.println();
 		System.out.println("---------------BUILDING STATE---------------");
 		
-		for (int i = 0; i < BuildingManager.FLOOR_COUNT; i++) {
+		// Report from one fresh view, so the numbers all add up and no caller can print an old one.
+		BuildingView view = manager.publishView();
+		for (int i = 0; i < view.getFloorCount(); i++) {
 			System.out.println("Floor " + i);
-			int[] totalPassengerRequests = manager.getTotalDestinationRequestsAtFloor(i);
-			int[] totalArrivedPassengers = manager.getArrivedPassengersAtFloor(i);
-			int[] currentPassengersWaiting = manager.getPassengerRequestsAtFloor(i);
-			
-			int totalPassengerRequestsAtFloor = 0;
-			int totalArrivedPassengersAtFloor = 0;
-			int currentPassengersWaitingAtFloor = 0;
-			
-			for (int j = 0; j < BuildingManager.FLOOR_COUNT; j++) {
-				totalPassengerRequestsAtFloor += totalPassengerRequests[j];
-				totalArrivedPassengersAtFloor += totalArrivedPassengers[j];
-				currentPassengersWaitingAtFloor += currentPassengersWaiting[j];
-			}
-			
 			System.out.println("Total Number of Passengers Requesting Elevator Access: " + 
-					totalPassengerRequestsAtFloor);
+					view.getTotalDestinationRequests(i));
 			System.out.println("Total Number of Passengers that Exited On This Floor: " + 
-					totalArrivedPassengersAtFloor);
+					view.getArrivedPassengers(i));
 			System.out.println("Current Number of Passengers Waiting for Elevator On This Floor: " + 
-					currentPassengersWaitingAtFloor);
-			System.out.println("Elevator coming for passenger pickup: " + manager.getApproachingElevatorAtFloor(i));
+					view.getWaitingPassengers(i));
+			System.out.println("Elevator coming for passenger pickup: " + view.getApproachingElevator(i));
+			System.out.println("Passenger Wait Time p50/p90/p99/max: " + 
+					manager.getPassengerMetrics().getWaitAtFloor(i).toPercentileString());
+			System.out.println("Passenger Journey Time p50/p90/p99/max: " + 
+					manager.getPassengerMetrics().getJourneyFromFloor(i).toPercentileString());
 			System.out.println();
 		}
 		
@@ -192,12 +461,28 @@ public class ElevatorSimulation
 		//current number of passengers heading to any floor
 		System.out.println("---------------ELEVATOR STATE---------------");
 		
-		for (int i = 0; i < MAX_ELEVATORS; i++) {
+		for (int i = 0; i < view.getElevatorCount(); i++) {
 			System.out.println("Elevator #" + i);
-			System.out.println("Total Number of Passengers that Entered Elevator: " + elevatorObjects[i].getTotalLoadedPassengers());
-			System.out.println("Total Number of Passengers that Exited Elevator: " + elevatorObjects[i].getTotalUnloadedPassengers());
-			System.out.println("Current Number of Passengers in Elevator: " + elevatorObjects[i].getNumPassengers());
+			System.out.println("Total Number of Passengers that Entered Elevator: " + view.getTotalLoadedPassengers(i));
+			System.out.println("Total Number of Passengers that Exited Elevator: " + view.getTotalUnloadedPassengers(i));
+			System.out.println("Current Number of Passengers in Elevator: " + view.getNumPassengers(i));
+			System.out.println("Passenger Wait Time p50/p90/p99/max: " + 
+					manager.getPassengerMetrics().getWaitForElevator(i).toPercentileString());
+			System.out.println("Passenger Journey Time p50/p90/p99/max: " + 
+					manager.getPassengerMetrics().getJourneyOnElevator(i).toPercentileString());
 			System.out.println();
 		}
+		
+		//PASSENGER INFO
+		//wait time from spawning to boarding, journey time from spawning to getting off
+		System.out.println("---------------PASSENGER TIMES---------------");
+		LatencyHistogram totalWait = manager.getPassengerMetrics().getTotalWait();
+		LatencyHistogram totalJourney = manager.getPassengerMetrics().getTotalJourney();
+		System.out.println("Passengers that Boarded: " + totalWait.getTotalCount());
+		System.out.printf("Mean Wait Time: %.2f%n", totalWait.getMean());
+		System.out.println("Wait Time p50/p90/p99/max: " + totalWait.toPercentileString());
+		System.out.println("Passengers that Arrived: " + totalJourney.getTotalCount());
+		System.out.printf("Mean Journey Time: %.2f%n", totalJourney.getMean());
+		System.out.println("Journey Time p50/p90/p99/max: " + totalJourney.toPercentileString());
 	}
 }
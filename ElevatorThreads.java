@@ -0,0 +1,78 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * Creates the threads elevators run on in threaded mode.
+ * Virtual threads only exist from Java 21 on, but the project builds for Java 17,
+ * so Thread.ofVirtual() is looked up once at runtime. Without it, platform threads are used instead.
+ */
+public class ElevatorThreads
+{
+	private static final MethodHandle ofVirtual;
+	private static final MethodHandle unstarted;
+	private static boolean warned = false;
+
+	static {
+		MethodHandle builder = null;
+		MethodHandle create = null;
+		try {
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			builder = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(builderClass));
+			create = lookup.findVirtual(builderClass, "unstarted", MethodType.methodType(Thread.class, Runnable.class));
+		}
+		catch (ReflectiveOperationException e) {
+			// Older Java, no virtual threads.
+		}
+		ofVirtual = builder;
+		unstarted = create;
+	}
+
+	/**
+	 * @return whether or not this Java has virtual threads.
+	 */
+	public static boolean isVirtualThreadSupported()
+	{
+		return ofVirtual != null;
+	}
+
+	/**
+	 * Creates an unstarted virtual thread, or a platform thread if this Java has no virtual threads.
+	 * @param task [in] what the thread runs.
+	 * @param name [in] the thread name.
+	 * @return the new thread.
+	 */
+	public static Thread newVirtualThread(Runnable task, String name)
+	{
+		if (ofVirtual == null) {
+			warnOnce();
+			return new Thread(task, name);
+		}
+
+		try {
+			Thread thread = (Thread) unstarted.invoke(ofVirtual.invoke(), task);
+			thread.setName(name);
+			return thread;
+		}
+		catch (Throwable e) {
+			throw new IllegalStateException("Cannot create a virtual thread", e);
+		}
+	}
+
+	/**
+	 * Tells the user once that the elevators run on platform threads after all.
+	 */
+	private static synchronized void warnOnce()
+	{
+		if (!warned) {
+			warned = true;
+			System.err.println("Virtual threads need Java 21 or newer, using platform threads instead.");
+		}
+	}
+}
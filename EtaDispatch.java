@@ -0,0 +1,57 @@
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * Sends each floor the elevator with the earliest estimated time of arrival, using the
+ * building's TravelTimeModel. Busy elevators are included: their estimate starts from
+ * the end of their moveQueue, so a floor may be left for a busy elevator that will get
+ * there sooner than an idle one.
+ */
+public class EtaDispatch implements DispatchStrategy
+{
+	/**
+	 * @return the unassigned floor with the earliest arrival among the floors this elevator
+	 * 		   would reach first. -1 if another elevator reaches every floor sooner.
+	 */
+	@Override
+	public int selectFloor(BuildingManager manager, int elevatorID) {
+		Elevator elevator = manager.getElevator(elevatorID);
+		int bestFloor = -1;
+		int bestArrival = Integer.MAX_VALUE;
+		
+		for (int floor = manager.nextUnassignedFloor(0); floor != -1; floor = manager.nextUnassignedFloor(floor + 1)) {
+			int arrival = elevator.estimateArrivalTime(floor);
+			if (arrival < bestArrival && !isSoonerElevator(manager, elevatorID, floor, arrival)) {
+				bestFloor = floor;
+				bestArrival = arrival;
+			}
+		}
+		
+		return bestFloor;
+	}
+	
+	/**
+	 * Ties go to the lower elevator ID so that exactly one elevator claims each floor.
+	 * @param manager [in] the building manager.
+	 * @param elevatorID [in] the requesting elevator.
+	 * @param floor [in] the floor to check.
+	 * @param arrival [in] the requesting elevator's estimated arrival at the floor.
+	 * @return whether or not another elevator is estimated to arrive at the floor sooner.
+	 */
+	private boolean isSoonerElevator(BuildingManager manager, int elevatorID, int floor, int arrival) {
+		for (int i = 0; i < manager.getElevatorCount(); i++) {
+			if (i == elevatorID) {
+				continue;
+			}
+			
+			int otherArrival = manager.getElevator(i).estimateArrivalTime(floor);
+			if (otherArrival < arrival || (otherArrival == arrival && i < elevatorID)) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+}
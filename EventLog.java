@@ -0,0 +1,279 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * The simulation's event log, shared by all threads and simulations of the JVM. It replaces the old SimClock.printWithTime().
+ * Callers pass in the time of their own SimClock, since every simulation has its own.
+ * A thread that logs an event does not build a String or print anything itself. It claims a slot in a
+ * lock-free ring buffer and writes a fixed-layout record of ints there:
+ * 		- the event type
+ * 		- the SimClock time of the simulation that logged it
+ * 		- up to three int arguments (floor, elevator ID, passenger count...)
+ * The slot number doubles as the line number. A background writer thread drains the records in slot order,
+ * formats them into the same lines printWithTime() printed, and writes them out in batches.
+ * The level decides what gets printed:
+ * 		- OFF: nothing. Logging an event returns straight away without allocating anything.
+ * 		- SUMMARY: only the building state at the end of the simulation (see ElevatorSimulation.printBuildingState()).
+ * 		- FULL: every event plus the building state.
+ */
+public class EventLog
+{
+	public enum Level { OFF, SUMMARY, FULL }
+
+	// Event types.
+	private static final int PASSENGERS_SPAWNED = 0;	// floor, goingToFloor, numPassengers
+	private static final int HEADING_FOR_PICKUP = 1;	// elevatorID, floor
+	private static final int LOADED = 2;				// elevatorID, floor
+	private static final int UNLOADED = 3;				// elevatorID, floor, numPassengers
+	private static final int PASSENGERS_BOARDED = 4;	// elevatorID, goingToFloor, numPassengers
+	private static final int HEADING_TO_PARK = 5;		// elevatorID, floor
+
+	// Ring buffer. Must be a power of 2.
+	private static final int CAPACITY = 1 << 14;
+	private static final int RECORD_WIDTH = 5;
+	private static final int MAX_BATCH = 1024;
+
+	private static volatile Level level = Level.FULL;
+
+	private static final int[] records = new int[CAPACITY * RECORD_WIDTH];
+	// The sequence number each slot was last written with, so the writer knows the record is complete.
+	private static final AtomicLongArray published = new AtomicLongArray(CAPACITY);
+	private static final AtomicLong claimed = new AtomicLong();
+	private static volatile long consumed = 0;
+	// Sequence numbers below this one were logged before the last reset().
+	private static volatile long firstSequence = 0;
+
+	private static final Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+	private static final Thread writer = new Thread(EventLog::drainForever, "event-log-writer");
+
+	static {
+		for (int i = 0; i < CAPACITY; i++) {
+			published.set(i, -1);
+		}
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * @param newLevel [in] what to print from now on.
+	 */
+	public static void setLevel(Level newLevel)
+	{
+		level = newLevel;
+	}
+
+	/**
+	 * @return what is being printed.
+	 */
+	public static Level getLevel()
+	{
+		return level;
+	}
+
+	/**
+	 * @param name [in] "off", "summary" or "full".
+	 * @return the matching level.
+	 */
+	public static Level levelForName(String name)
+	{
+		return Level.valueOf(name.toUpperCase());
+	}
+
+	/**
+	 * Starts the line numbers at 1 again so another simulation can run.
+	 * Waits for the records of the last simulation to be written first.
+	 * Not thread safe. Only main (or one specific) thread should be calling this.
+	 */
+	public static void reset()
+	{
+		flush();
+		firstSequence = claimed.get();
+	}
+
+	/**
+	 * Blocks until every record logged so far has been written out.
+	 */
+	public static void flush()
+	{
+		long target = claimed.get();
+		while (consumed < target) {
+			LockSupport.unpark(writer);
+			Thread.yield();
+		}
+
+		synchronized (out) {
+			try {
+				out.flush();
+			}
+			catch (IOException e) {
+				// Same as System.out, which never reports errors either.
+			}
+		}
+	}
+
+	/**
+	 * "There are N passengers on Floor X requesting to go to Floor Y."
+	 */
+	public static void passengersSpawned(int time, int floor, int goingToFloor, int numPassengers)
+	{
+		if (level == Level.FULL) {
+			append(time, PASSENGERS_SPAWNED, floor, goingToFloor, numPassengers);
+		}
+	}
+
+	/**
+	 * "Elevator E is heading to Floor X to pick up passengers."
+	 */
+	public static void headingForPickup(int time, int elevatorID, int floor)
+	{
+		if (level == Level.FULL) {
+			append(time, HEADING_FOR_PICKUP, elevatorID, floor, 0);
+		}
+	}
+
+	/**
+	 * "Elevator E is heading to Floor X to park."
+	 */
+	public static void headingToPark(int time, int elevatorID, int floor)
+	{
+		if (level == Level.FULL) {
+			append(time, HEADING_TO_PARK, elevatorID, floor, 0);
+		}
+	}
+
+	/**
+	 * "Elevator E has arrived at Floor X and has loaded passengers."
+	 */
+	public static void loaded(int time, int elevatorID, int floor)
+	{
+		if (level == Level.FULL) {
+			append(time, LOADED, elevatorID, floor, 0);
+		}
+	}
+
+	/**
+	 * "Elevator E has arrived at Floor X and has unloaded N passengers."
+	 */
+	public static void unloaded(int time, int elevatorID, int floor, int numPassengers)
+	{
+		if (level == Level.FULL) {
+			append(time, UNLOADED, elevatorID, floor, numPassengers);
+		}
+	}
+
+	/**
+	 * "There are N passengers in Elevator E requesting to go to Floor Y."
+	 */
+	public static void passengersBoarded(int time, int elevatorID, int goingToFloor, int numPassengers)
+	{
+		if (level == Level.FULL) {
+			append(time, PASSENGERS_BOARDED, elevatorID, goingToFloor, numPassengers);
+		}
+	}
+
+	/**
+	 * Claims the next slot and writes a record into it.
+	 * If the writer is a whole buffer behind, waits for it to catch up instead of dropping the record.
+	 */
+	private static void append(int time, int type, int a, int b, int c)
+	{
+		long sequence = claimed.getAndIncrement();
+		while (sequence - consumed >= CAPACITY) {
+			LockSupport.unpark(writer);
+			Thread.yield();
+		}
+
+		int slot = (int) sequence & (CAPACITY - 1);
+		int base = slot * RECORD_WIDTH;
+		records[base] = type;
+		records[base + 1] = time;
+		records[base + 2] = a;
+		records[base + 3] = b;
+		records[base + 4] = c;
+		// The volatile write publishes the record to the writer.
+		published.set(slot, sequence);
+	}
+
+	/**
+	 * Body of the writer thread. Writes whatever is ready in batches and parks while there is nothing to do.
+	 */
+	private static void drainForever()
+	{
+		StringBuilder batch = new StringBuilder(MAX_BATCH * 64);
+
+		while (true) {
+			long sequence = consumed;
+			int count = 0;
+			while (count < MAX_BATCH && published.get((int) sequence & (CAPACITY - 1)) == sequence) {
+				format(batch, sequence);
+				sequence++;
+				count++;
+			}
+
+			if (count == 0) {
+				LockSupport.parkNanos(1_000_000);
+				continue;
+			}
+
+			synchronized (out) {
+				try {
+					out.append(batch);
+					out.flush();
+				}
+				catch (IOException e) {
+				}
+			}
+			batch.setLength(0);
+			// Only free the slots once their lines are out, so flush() can trust consumed.
+			consumed = sequence;
+		}
+	}
+
+	/**
+	 * Formats one record the way printWithTime() used to:
+	 * "[N] Time X: message"
+	 */
+	private static void format(StringBuilder line, long sequence)
+	{
+		int base = ((int) sequence & (CAPACITY - 1)) * RECORD_WIDTH;
+		int a = records[base + 2];
+		int b = records[base + 3];
+		int c = records[base + 4];
+
+		line.append('[').append(sequence - firstSequence + 1).append("] Time ").append(records[base + 1]).append(": ");
+		switch (records[base]) {
+		case PASSENGERS_SPAWNED:
+			line.append("There are ").append(c).append(" passengers on Floor ").append(a)
+				.append(" requesting to go to Floor ").append(b).append('.');
+			break;
+		case HEADING_FOR_PICKUP:
+			line.append("Elevator ").append(a).append(" is heading to Floor ").append(b).append(" to pick up passengers.");
+			break;
+		case HEADING_TO_PARK:
+			line.append("Elevator ").append(a).append(" is heading to Floor ").append(b).append(" to park.");
+			break;
+		case LOADED:
+			line.append("Elevator ").append(a).append(" has arrived at Floor ").append(b).append(" and has loaded passengers.");
+			break;
+		case UNLOADED:
+			line.append("Elevator ").append(a).append(" has arrived at Floor ").append(b)
+				.append(" and has unloaded ").append(c).append(" passengers.");
+			break;
+		case PASSENGERS_BOARDED:
+			line.append("There are ").append(c).append(" passengers in Elevator ").append(a)
+				.append(" requesting to go to Floor ").append(b).append('.');
+			break;
+		}
+		line.append(System.lineSeparator());
+	}
+}
@@ -0,0 +1,99 @@
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * The EventScheduler runs the simulation in discrete-event mode.
+ * Instead of one spinning thread per elevator, the passenger arrivals and the
+ * ElevatorEvents at the head of every moveQueue are ordered by time and the
+ * SimClock jumps straight from one event time to the next.
+ * All elevators are stepped on the main thread, in elevator ID order.
+ * With a ParkingPolicy the clock also stops at the start of every DemandForecaster slot,
+ * since idle elevators may park somewhere else once the forecast looks further ahead.
+ */
+public class EventScheduler
+{
+	// Data Members
+	private BuildingManager manager;
+	private Elevator[] elevators;
+	private SimClock clock;
+	private ArrivalSource[] arrivalSources;
+
+	/**
+	 * Default constructor.
+	 * @param sharedManager [in] the building manager shared by all elevators.
+	 * @param elevatorObjects [in] the elevators to step.
+	 * @param sources [in] where the passengers come from, spawned in this order every tick.
+	 */
+	public EventScheduler(BuildingManager sharedManager, Elevator[] elevatorObjects, ArrivalSource[] sources)
+	{
+		manager = sharedManager;
+		elevators = elevatorObjects;
+		clock = sharedManager.getClock();
+		arrivalSources = sources;
+	}
+
+	/**
+	 * Runs the simulation until the next event would happen after simulationLength.
+	 * @param simulationLength [in] the last SimClock time to simulate.
+	 */
+	public void run(int simulationLength)
+	{
+		int time = clock.getTime();
+
+		while (time <= simulationLength) {
+			clock.advanceTo(time);
+
+			// Spawn passengers first, the same way the main loop does before the elevators see the tick.
+			for (ArrivalSource source : arrivalSources) {
+				source.spawnDueArrivals(manager);
+			}
+
+			// Keep stepping the elevators until none of them changes state.
+			// An elevator that finishes a pickup can free up a floor for an elevator that was already stepped.
+			// Due events are processed before any elevator claims or releases a floor, and the elevators that stopped
+			// somewhere finish there before any idle elevator asks for a floor, in the same order the threaded mode uses.
+			boolean progressed = true;
+			while (progressed) {
+				progressed = false;
+				for (Elevator e : elevators) {
+					progressed |= e.processDueEvents();
+				}
+				for (Elevator e : elevators) {
+					progressed |= e.finishStop();
+				}
+				for (Elevator e : elevators) {
+					progressed |= e.requestPickups();
+				}
+			}
+			manager.publishViewIfRequested();
+
+			time = nextEventTime();
+		}
+
+		// Leave the clock where the threaded mode would leave it.
+		clock.advanceTo(simulationLength + 1);
+	}
+
+	/**
+	 * @return the earliest time at which a passenger arrival, an ElevatorEvent or a new forecast slot happens.
+	 * 		   Integer.MAX_VALUE if there is nothing left to happen.
+	 */
+	private int nextEventTime()
+	{
+		int next = Integer.MAX_VALUE;
+
+		for (ArrivalSource source : arrivalSources) {
+			next = Math.min(next, source.peekTime());
+		}
+		for (Elevator e : elevators) {
+			next = Math.min(next, e.getNextEventTime());
+		}
+		if (manager.getParkingPolicy() != null) {
+			next = Math.min(next, manager.getDemandForecaster().getNextSlotStart(clock.getTime()));
+		}
+
+		return next;
+	}
+}
@@ -0,0 +1,196 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * A binary trace of every state change in the simulation, for auditing long runs and replaying them
+ * with TraceReplay. Shared by all threads of this project, the same as the EventLog.
+ * The file starts with a 16 byte header:
+ * 		- the magic number "ELVT"
+ * 		- the format version
+ * 		- the floor count
+ * 		- the elevator count
+ * followed by 16 byte records:
+ * 		- int tick
+ * 		- short event type
+ * 		- short elevator ID (-1 if the event has no elevator)
+ * 		- short floor
+ * 		- short goingToFloor (-1 if the event has none)
+ * 		- int passenger count
+ * Everything is little endian.
+ * The file is written through memory-mapped segments of a FileChannel. A thread that records an event
+ * claims the next 16 bytes with an atomic add and writes them with absolute puts, so recording never
+ * locks or allocates, except when a new segment has to be mapped.
+ */
+public class EventTrace
+{
+	public static final int MAGIC = 0x544C5645;	// "ELVT" in little endian
+	public static final int VERSION = 2;
+	public static final int RECORD_SIZE = 16;
+
+	// Event types.
+	public static final int SPAWNED = 0;	// floor, goingToFloor, count
+	public static final int CLAIMED = 1;	// elevatorID, floor
+	public static final int RELEASED = 2;	// floor
+	public static final int ARRIVED = 3;	// elevatorID, floor
+	public static final int BOARDED = 4;	// elevatorID, floor, goingToFloor, count
+	public static final int UNLOADED = 5;	// elevatorID, floor, count
+	public static final int RESERVED = 6;	// elevatorID, floor, goingToFloor, count
+	public static final int UNRESERVED = 7;	// elevatorID, floor, goingToFloor, count left over
+
+	// A multiple of RECORD_SIZE, so no record is split between two segments.
+	static final int SEGMENT_SIZE = 64 << 20;
+
+	private static volatile boolean enabled = false;
+	private static FileChannel channel;
+	private static volatile MappedByteBuffer[] segments;
+	private static final AtomicLong position = new AtomicLong();
+	// Not synchronized, so a virtual thread mapping a segment doesn't pin its carrier.
+	private static final ReentrantLock mapLock = new ReentrantLock();
+
+	/**
+	 * Starts writing a new trace file. Replaces the file if it already exists.
+	 * Not thread safe. Only main (or one specific) thread should be calling this, before the simulation starts.
+	 * @param fileName [in] the trace file.
+	 * @param floorCount [in] the number of building floors.
+	 * @param elevatorCount [in] the number of elevators.
+	 * @throws IOException if the file can't be created.
+	 */
+	public static void open(String fileName, int floorCount, int elevatorCount) throws IOException
+	{
+		close();
+
+		RandomAccessFile file = new RandomAccessFile(fileName, "rw");
+		file.setLength(0);
+		channel = file.getChannel();
+		segments = new MappedByteBuffer[16];
+		position.set(RECORD_SIZE);
+
+		MappedByteBuffer header = segment(0);
+		header.putInt(0, MAGIC);
+		header.putInt(4, VERSION);
+		header.putInt(8, floorCount);
+		header.putInt(12, elevatorCount);
+		enabled = true;
+	}
+
+	/**
+	 * Writes out everything that was recorded and closes the trace file.
+	 * The file is cut down to the records that were actually written.
+	 * Not thread safe. Only main (or one specific) thread should be calling this, after the simulation is done.
+	 */
+	public static void close()
+	{
+		if (channel == null) {
+			return;
+		}
+		enabled = false;
+
+		try {
+			for (MappedByteBuffer segment : segments) {
+				if (segment != null) {
+					segment.force();
+				}
+			}
+			// The segments get unmapped once they are garbage collected.
+			segments = null;
+			channel.truncate(position.get());
+			channel.close();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		finally {
+			channel = null;
+		}
+	}
+
+	/**
+	 * @return whether or not a trace file is being written.
+	 */
+	public static boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	/**
+	 * Records an event. Does nothing if no trace file is open.
+	 * @param time [in] the SimClock time of the event.
+	 * @param type [in] one of the event types.
+	 * @param elevatorID [in] the elevator, -1 for none.
+	 * @param floor [in] the building floor.
+	 * @param goingToFloor [in] the passengers' destination, -1 for none.
+	 * @param count [in] the number of passengers.
+	 */
+	public static void record(int time, int type, int elevatorID, int floor, int goingToFloor, int count)
+	{
+		if (!enabled) {
+			return;
+		}
+
+		long offset = position.getAndAdd(RECORD_SIZE);
+		MappedByteBuffer segment = segment((int) (offset / SEGMENT_SIZE));
+		int index = (int) (offset % SEGMENT_SIZE);
+		segment.putInt(index, time);
+		segment.putShort(index + 4, (short) type);
+		segment.putShort(index + 6, (short) elevatorID);
+		segment.putShort(index + 8, (short) floor);
+		segment.putShort(index + 10, (short) goingToFloor);
+		segment.putInt(index + 12, count);
+	}
+
+	/**
+	 * @param index [in] the segment number.
+	 * @return the mapped segment, mapping it first if no thread needed it yet.
+	 */
+	private static MappedByteBuffer segment(int index)
+	{
+		MappedByteBuffer[] current = segments;
+		if (index < current.length && current[index] != null) {
+			return current[index];
+		}
+		return mapSegment(index);
+	}
+
+	/**
+	 * Maps a segment. Only happens once every SEGMENT_SIZE bytes, so a lock is fine here.
+	 * @param index [in] the segment number.
+	 * @return the mapped segment.
+	 */
+	private static MappedByteBuffer mapSegment(int index)
+	{
+		mapLock.lock();
+		try {
+			MappedByteBuffer[] current = segments;
+			if (index >= current.length) {
+				MappedByteBuffer[] grown = new MappedByteBuffer[Math.max(current.length * 2, index + 1)];
+				System.arraycopy(current, 0, grown, 0, current.length);
+				current = grown;
+			}
+
+			if (current[index] == null) {
+				current[index] = channel.map(FileChannel.MapMode.READ_WRITE, (long) index * SEGMENT_SIZE, SEGMENT_SIZE);
+				current[index].order(ByteOrder.LITTLE_ENDIAN);
+			}
+			// Publish the array again so other threads see the new segment.
+			segments = current;
+			return current[index];
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		finally {
+			mapLock.unlock();
+		}
+	}
+}
@@ -10,11 +10,185 @@ public class Lab4
 {
 	public static void main(String[] args)
 	{
-		ElevatorSimulation es = new ElevatorSimulation();
+		// "-discrete" runs the simulation as fast as possible in discrete-event mode.
+		// "-nosleep" runs the threaded mode without sleeping between ticks.
+		// "-virtual" runs the elevators of the threaded mode on virtual threads (Java 21 and up).
+		// "-floors N" and "-elevators M" size the building.
+		// "-collective" turns on SCAN/LOOK collective control so elevators pick up en route.
+		// "-capacity N" limits how many passengers fit in each elevator. Floors with more waiting are shared by several elevators.
+		// "-dispatch NAME" selects the dispatch strategy: lowest, nearest, eta or destination.
+		// "-parking NAME" selects where idle elevators wait: none, or demand to park them where passengers are forecast.
+		// "-day T" is how many ticks the traffic takes to repeat itself, for the forecast to learn it by time of day.
+		// Random traffic peaks at the same times of this day, which starts at midnight at time 0.
+		// "-log LEVEL" selects what gets printed: off, summary or full.
+		// "-config FILE" reads the simulation settings from FILE instead of ElevatorConfig.txt.
+		// "-kinematics FILE" times the elevators with the speed, acceleration, door and boarding times in FILE.
+		// "-traffic PROFILE" adds random passengers: uppeak, lunch, downpeak or interfloor.
+		// "-rate R" is the average number of those passengers per tick at the busiest time, "-seed S" their random seed.
+		// "-trace FILE" writes a binary trace of the run that TraceReplay can read back.
+		// "-snapshot T FILE" writes a snapshot of the whole simulation to FILE when the clock gets to T.
+		// "-metrics PORT" serves live metrics at http://localhost:PORT/metrics and over JMX while the simulation runs.
+		// "-resume FILE" carries on from a snapshot instead of reading the config file. The building size
+		// and collective control come from the snapshot, "-traffic" replaces its random traffic.
+		// "-banks FILE" splits the elevators into the banks in FILE, e.g. low, mid and high rise banks and express
+		// shuttles to sky lobbies, and runs every bank on its own thread. The elevator count comes from FILE and the
+		// banks always run in discrete-event mode, without a trace, snapshots or live metrics.
+		boolean discreteEvent = false;
+		boolean sleepEnabled = true;
+		boolean collectiveControl = false;
+		boolean virtualThreads = false;
+		int floorCount = BuildingManager.DEFAULT_FLOOR_COUNT;
+		int elevatorCount = ElevatorSimulation.DEFAULT_ELEVATORS;
+		String dispatch = "lowest";
+		String parking = "none";
+		int dayLength = DemandForecaster.DEFAULT_DAY_LENGTH;
+		String traceFile = null;
+		String snapshotFile = null;
+		int snapshotTime = 0;
+		String resumeFile = null;
+		int metricsPort = -1;
+		String configFile = "ElevatorConfig.txt";
+		String kinematicsFile = null;
+		String banksFile = null;
+		TrafficGenerator.Profile traffic = null;
+		double trafficRate = 0.1;
+		long seed = 42;
+		int capacity = Integer.MAX_VALUE;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-discrete")) {
+				discreteEvent = true;
+			}
+			else if (args[i].equals("-nosleep")) {
+				sleepEnabled = false;
+			}
+			else if (args[i].equals("-virtual")) {
+				virtualThreads = true;
+			}
+			else if (args[i].equals("-collective")) {
+				collectiveControl = true;
+			}
+			else if (args[i].equals("-floors") && i + 1 < args.length) {
+				floorCount = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-elevators") && i + 1 < args.length) {
+				elevatorCount = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-capacity") && i + 1 < args.length) {
+				capacity = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-dispatch") && i + 1 < args.length) {
+				dispatch = args[++i];
+			}
+			else if (args[i].equals("-parking") && i + 1 < args.length) {
+				parking = args[++i];
+			}
+			else if (args[i].equals("-day") && i + 1 < args.length) {
+				dayLength = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-log") && i + 1 < args.length) {
+				EventLog.setLevel(EventLog.levelForName(args[++i]));
+			}
+			else if (args[i].equals("-config") && i + 1 < args.length) {
+				configFile = args[++i];
+			}
+			else if (args[i].equals("-kinematics") && i + 1 < args.length) {
+				kinematicsFile = args[++i];
+			}
+			else if (args[i].equals("-traffic") && i + 1 < args.length) {
+				traffic = TrafficGenerator.profileForName(args[++i]);
+			}
+			else if (args[i].equals("-rate") && i + 1 < args.length) {
+				trafficRate = Double.parseDouble(args[++i]);
+			}
+			else if (args[i].equals("-seed") && i + 1 < args.length) {
+				seed = Long.parseLong(args[++i]);
+			}
+			else if (args[i].equals("-trace") && i + 1 < args.length) {
+				traceFile = args[++i];
+			}
+			else if (args[i].equals("-snapshot") && i + 2 < args.length) {
+				snapshotTime = Integer.parseInt(args[++i]);
+				snapshotFile = args[++i];
+			}
+			else if (args[i].equals("-resume") && i + 1 < args.length) {
+				resumeFile = args[++i];
+			}
+			else if (args[i].equals("-metrics") && i + 1 < args.length) {
+				metricsPort = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-banks") && i + 1 < args.length) {
+				banksFile = args[++i];
+			}
+		}
+		
+		if (banksFile != null) {
+			runZoned(banksFile, floorCount, collectiveControl, capacity, dispatch, parking, dayLength, configFile, kinematicsFile,
+					 traffic, trafficRate, seed);
+			return;
+		}
+		
+		ElevatorSimulation es;
+		try {
+			es = resumeFile != null ? ElevatorSimulation.forSnapshot(resumeFile) : new ElevatorSimulation(floorCount, elevatorCount);
+		}
+		catch (ConfigException e) {
+			System.out.println(e.getMessage());
+			System.exit(1);
+			return;
+		}
+		es.setDiscreteEvent(discreteEvent);
+		es.setSleepEnabled(sleepEnabled);
+		es.setVirtualThreads(virtualThreads);
+		es.setCollectiveControl(collectiveControl);
+		es.setCapacity(capacity);
+		es.setDispatchStrategy(DispatchStrategy.forName(dispatch));
+		es.setParkingPolicy(ParkingPolicy.forName(parking));
+		es.setDayLength(dayLength);
+		es.setTraceFile(traceFile);
+		es.setConfigFile(configFile);
+		es.setKinematicsFile(kinematicsFile);
+		es.setTraffic(traffic, trafficRate, seed);
+		es.setSnapshot(snapshotTime, snapshotFile);
+		es.setMetricsPort(metricsPort);
 		// Start the elevator simulation.
-		es.start();
+		try {
+			es.start();
+		}
+		catch (ConfigException e) {
+			System.out.println(e.getMessage());
+			System.exit(1);
+		}
 		
 		// Print statistics when the simulation is done.
 		es.printBuildingState();
 	}
+	
+	/**
+	 * Runs a building whose elevators are split into banks, with the options given to main().
+	 */
+	private static void runZoned(String banksFile, int floorCount, boolean collectiveControl, int capacity, String dispatch,
+								 String parking, int dayLength, String configFile, String kinematicsFile,
+								 TrafficGenerator.Profile traffic, double trafficRate, long seed)
+	{
+		ZonedSimulation zs;
+		try {
+			zs = new ZonedSimulation(BankLayout.load(banksFile, floorCount));
+			zs.setCollectiveControl(collectiveControl);
+			zs.setCapacity(capacity);
+			zs.setDispatchStrategy(dispatch);
+			zs.setParkingPolicy(parking);
+			zs.setDayLength(dayLength);
+			zs.setConfigFile(configFile);
+			zs.setKinematicsFile(kinematicsFile);
+			zs.setTraffic(traffic, trafficRate, seed);
+			zs.start();
+		}
+		catch (ConfigException e) {
+			System.out.println(e.getMessage());
+			System.exit(1);
+			return;
+		}
+		
+		zs.printBuildingState();
+	}
 }
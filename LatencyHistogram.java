@@ -0,0 +1,202 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * A fixed memory histogram of SimClock durations, in the style of HdrHistogram.
+ * Values below 64 get a bucket each. Above that, every power of two is split into 32 buckets,
+ * so any recorded value is reported within about 3% no matter how large it is.
+ * Recording is an atomic add, so several elevator threads can record into the same histogram.
+ */
+public class LatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;  // 64
+	private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;  // 32
+	// Enough buckets for every non-negative int.
+	private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (31 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF;
+
+	private AtomicLongArray counts;
+	private AtomicLong totalCount;
+	private AtomicLong totalValue;
+	private AtomicLong maxValue;
+
+	/**
+	 * Default constructor for an empty histogram.
+	 */
+	public LatencyHistogram()
+	{
+		counts = new AtomicLongArray(BUCKET_COUNT);
+		totalCount = new AtomicLong();
+		totalValue = new AtomicLong();
+		maxValue = new AtomicLong();
+	}
+
+	/**
+	 * Records a value once for each of count passengers.
+	 * @param value [in] the duration to record. Negative values are recorded as 0.
+	 * @param count [in] how many times to record it.
+	 */
+	public void recordValue(int value, int count)
+	{
+		value = Math.max(value, 0);
+		counts.getAndAdd(bucketIndex(value), count);
+		totalCount.getAndAdd(count);
+		totalValue.getAndAdd((long) value * count);
+		maxValue.getAndAccumulate(value, Math::max);
+	}
+
+	/**
+	 * @return the number of recorded values.
+	 */
+	public long getTotalCount()
+	{
+		return totalCount.get();
+	}
+
+	/**
+	 * @return the largest recorded value, 0 if nothing was recorded.
+	 */
+	public int getMaxValue()
+	{
+		return (int) maxValue.get();
+	}
+
+	/**
+	 * @return the mean of the recorded values, 0 if nothing was recorded.
+	 */
+	public double getMean()
+	{
+		long count = totalCount.get();
+		return count == 0 ? 0 : (double) totalValue.get() / count;
+	}
+
+	/**
+	 * @param percentile [in] the percentile, from 0 to 100.
+	 * @return the value at the percentile, rounded up to the top of its bucket.
+	 * 		   0 if nothing was recorded.
+	 */
+	public int getValueAtPercentile(double percentile)
+	{
+		long count = totalCount.get();
+		if (count == 0) {
+			return 0;
+		}
+
+		long countAtPercentile = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts.get(i);
+			if (seen >= countAtPercentile) {
+				return (int) Math.min(highestValueInBucket(i), getMaxValue());
+			}
+		}
+
+		return getMaxValue();
+	}
+
+	/**
+	 * Adds every value recorded in another histogram to this one.
+	 * @param other [in] the histogram to add.
+	 */
+	public void add(LatencyHistogram other)
+	{
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts.getAndAdd(i, other.counts.get(i));
+		}
+		totalCount.getAndAdd(other.totalCount.get());
+		totalValue.getAndAdd(other.totalValue.get());
+		maxValue.getAndAccumulate(other.maxValue.get(), Math::max);
+	}
+
+	/**
+	 * Writes the recorded values for a SimulationSnapshot. Only the buckets that were used are written.
+	 * @param out [in] the snapshot stream.
+	 */
+	public void writeState(DataOutputStream out) throws IOException
+	{
+		out.writeLong(totalCount.get());
+		out.writeLong(totalValue.get());
+		out.writeLong(maxValue.get());
+
+		int used = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			if (counts.get(i) != 0) {
+				used++;
+			}
+		}
+		out.writeInt(used);
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			if (counts.get(i) != 0) {
+				out.writeShort(i);
+				out.writeLong(counts.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Replaces the recorded values with the ones written by writeState().
+	 * @param in [in] the snapshot stream.
+	 */
+	public void readState(DataInputStream in) throws IOException
+	{
+		totalCount.set(in.readLong());
+		totalValue.set(in.readLong());
+		maxValue.set(in.readLong());
+
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts.set(i, 0);
+		}
+		int used = in.readInt();
+		for (int i = 0; i < used; i++) {
+			int bucket = in.readShort();
+			counts.set(bucket, in.readLong());
+		}
+	}
+
+	/**
+	 * @return the p50, p90, p99 and max in the form "p50/p90/p99/max".
+	 */
+	public String toPercentileString()
+	{
+		return getValueAtPercentile(50) + "/" + getValueAtPercentile(90) + "/" +
+			   getValueAtPercentile(99) + "/" + getMaxValue();
+	}
+
+	/**
+	 * @param value [in] a non-negative value.
+	 * @return the bucket the value is counted in.
+	 */
+	private static int bucketIndex(int value)
+	{
+		if (value < SUB_BUCKET_COUNT) {
+			return value;
+		}
+
+		// Shift the value down until it lands in the top half of the sub-buckets.
+		int shift = (31 - Integer.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+		return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF + ((value >> shift) - SUB_BUCKET_HALF);
+	}
+
+	/**
+	 * @param index [in] a bucket index.
+	 * @return the highest value that is counted in the bucket.
+	 */
+	private static long highestValueInBucket(int index)
+	{
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+
+		int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+		long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,19 @@
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * The original dispatch strategy. An idle elevator is sent to the lowest floor
+ * that has waiting passengers and no approaching elevator, wherever the elevator is.
+ */
+public class LowestFloorDispatch implements DispatchStrategy
+{
+	/**
+	 * @return the lowest unassigned floor.
+	 */
+	@Override
+	public int selectFloor(BuildingManager manager, int elevatorID) {
+		return manager.nextUnassignedFloor(0);
+	}
+}
@@ -0,0 +1,65 @@
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * Sends each floor the nearest idle elevator.
+ * The requesting elevator looks at the unassigned floors from nearest to furthest and takes
+ * the first one that no other idle elevator is closer to. If every floor has a closer idle
+ * elevator, it takes its nearest floor anyway so no floor is left waiting.
+ */
+public class NearestCarDispatch implements DispatchStrategy
+{
+	/**
+	 * @return the nearest unassigned floor this elevator is the closest idle elevator to.
+	 */
+	@Override
+	public int selectFloor(BuildingManager manager, int elevatorID) {
+		int from = manager.getElevator(elevatorID).getCurrentFloor();
+		
+		// Walk outwards from the elevator, one unassigned floor at a time.
+		int up = manager.nextUnassignedFloor(from);
+		int down = manager.previousUnassignedFloor(from - 1);
+		int nearest = -1;
+		
+		while (up != -1 || down != -1) {
+			int floor;
+			if (down == -1 || (up != -1 && up - from <= from - down)) {
+				floor = up;
+				up = manager.nextUnassignedFloor(up + 1);
+			}
+			else {
+				floor = down;
+				down = manager.previousUnassignedFloor(down - 1);
+			}
+			
+			if (nearest == -1) {
+				nearest = floor;
+			}
+			if (!isCloserIdleElevator(manager, elevatorID, floor, Math.abs(floor - from))) {
+				return floor;
+			}
+		}
+		
+		return nearest;
+	}
+	
+	/**
+	 * @param manager [in] the building manager.
+	 * @param elevatorID [in] the requesting elevator.
+	 * @param floor [in] the floor to check.
+	 * @param distance [in] how far the requesting elevator is from the floor.
+	 * @return whether or not another idle elevator is closer to the floor.
+	 */
+	private boolean isCloserIdleElevator(BuildingManager manager, int elevatorID, int floor, int distance) {
+		for (int i = 0; i < manager.getElevatorCount(); i++) {
+			Elevator other = manager.getElevator(i);
+			if (i != elevatorID && other.isIdle() && Math.abs(floor - other.getCurrentFloor()) < distance) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+}
@@ -0,0 +1,35 @@
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * A ParkingPolicy decides where an idle elevator waits when the DispatchStrategy has no floor for it.
+ * The elevator moves there and stays idle, so it can still be sent for passengers on the way.
+ * Policies only read building state.
+ */
+public interface ParkingPolicy
+{
+	/**
+	 * Picks the floor an idle elevator should wait at.
+	 * @param manager [in] the building manager to read floor, elevator and forecast state from.
+	 * @param elevatorID [in] the idle elevator.
+	 * @return the floor to park at. -1 to stay where it is.
+	 */
+	int selectParkingFloor(BuildingManager manager, int elevatorID);
+	
+	/**
+	 * @param name [in] "none" or "demand".
+	 * @return a new parking policy for the name, null for "none".
+	 */
+	static ParkingPolicy forName(String name) {
+		switch (name) {
+			case "none":
+				return null;
+			case "demand":
+				return new DemandParking();
+			default:
+				throw new IllegalArgumentException("Unknown parking policy " + name);
+		}
+	}
+}
@@ -0,0 +1,207 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * A first in, first out queue of passenger cohorts. A cohort is a group of passengers that
+ * spawned on the same floor at the same SimClock time, so the queue stays small even when
+ * millions of passengers go through it. Passengers are taken from the oldest cohort first.
+ * The cohorts are kept in parallel int arrays used as a ring buffer.
+ * Not thread safe. Callers that share a queue lock on it.
+ */
+public class PassengerCohortQueue
+{
+	private int[] spawnTimes;
+	private int[] originFloors;
+	private int[] counts;
+	private int head;
+	private int size;
+
+	/**
+	 * Default constructor for an empty queue.
+	 */
+	public PassengerCohortQueue()
+	{
+		spawnTimes = new int[2];
+		originFloors = new int[2];
+		counts = new int[2];
+	}
+
+	/**
+	 * Adds passengers to the back of the queue.
+	 * They join the last cohort if it spawned on the same floor at the same time.
+	 * @param spawnTime [in] the SimClock time the passengers spawned.
+	 * @param originFloor [in] the floor the passengers spawned on.
+	 * @param count [in] the number of passengers.
+	 */
+	public void add(int spawnTime, int originFloor, int count)
+	{
+		if (count <= 0) {
+			return;
+		}
+
+		if (size > 0) {
+			int last = (head + size - 1) % counts.length;
+			if (spawnTimes[last] == spawnTime && originFloors[last] == originFloor) {
+				counts[last] += count;
+				return;
+			}
+		}
+
+		if (size == counts.length) {
+			grow();
+		}
+
+		int tail = (head + size) % counts.length;
+		spawnTimes[tail] = spawnTime;
+		originFloors[tail] = originFloor;
+		counts[tail] = count;
+		size++;
+	}
+
+	/**
+	 * Takes up to maxPassengers from the oldest cohort.
+	 * Read peekSpawnTime() and peekOriginFloor() first to know who was taken.
+	 * @param maxPassengers [in] the most passengers to take.
+	 * @return the number of passengers taken.
+	 */
+	public int poll(int maxPassengers)
+	{
+		if (size == 0) {
+			return 0;
+		}
+
+		int taken = Math.min(counts[head], maxPassengers);
+		counts[head] -= taken;
+		if (counts[head] == 0) {
+			head = (head + 1) % counts.length;
+			size--;
+		}
+
+		return taken;
+	}
+
+	/**
+	 * @return whether or not the queue has no cohorts.
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * @return the spawn time of the oldest cohort.
+	 */
+	public int peekSpawnTime()
+	{
+		return spawnTimes[head];
+	}
+
+	/**
+	 * @return the origin floor of the oldest cohort.
+	 */
+	public int peekOriginFloor()
+	{
+		return originFloors[head];
+	}
+
+	/**
+	 * @param time [in] the SimClock time to count the waits up to.
+	 * @return the ticks every passenger in the queue has waited by time, added up.
+	 */
+	public long getTotalWait(int time)
+	{
+		long total = 0;
+		for (int i = 0; i < size; i++) {
+			int cohort = (head + i) % counts.length;
+			total += (long) (time - spawnTimes[cohort]) * counts[cohort];
+		}
+
+		return total;
+	}
+
+	/**
+	 * Removes every cohort.
+	 */
+	public void clear()
+	{
+		head = 0;
+		size = 0;
+	}
+
+	/**
+	 * Moves every cohort of another queue to the front of this one, e.g. reserved passengers
+	 * that go back to waiting in front of the passengers that spawned after them.
+	 * @param older [in] the queue to move. It is empty afterwards.
+	 */
+	public void prependAll(PassengerCohortQueue older)
+	{
+		while (size + older.size > counts.length) {
+			grow();
+		}
+
+		for (int i = older.size - 1; i >= 0; i--) {
+			int from = (older.head + i) % older.counts.length;
+			head = (head - 1 + counts.length) % counts.length;
+			spawnTimes[head] = older.spawnTimes[from];
+			originFloors[head] = older.originFloors[from];
+			counts[head] = older.counts[from];
+			size++;
+		}
+		older.clear();
+	}
+
+	/**
+	 * Writes the cohorts, oldest first, for a SimulationSnapshot.
+	 * @param out [in] the snapshot stream.
+	 */
+	public void writeState(DataOutputStream out) throws IOException
+	{
+		out.writeInt(size);
+		for (int i = 0; i < size; i++) {
+			int index = (head + i) % counts.length;
+			out.writeInt(spawnTimes[index]);
+			out.writeInt(originFloors[index]);
+			out.writeInt(counts[index]);
+		}
+	}
+
+	/**
+	 * Replaces the cohorts with the ones written by writeState().
+	 * @param in [in] the snapshot stream.
+	 */
+	public void readState(DataInputStream in) throws IOException
+	{
+		clear();
+		int cohorts = in.readInt();
+		for (int i = 0; i < cohorts; i++) {
+			add(in.readInt(), in.readInt(), in.readInt());
+		}
+	}
+
+	/**
+	 * Doubles the size of the ring buffer, unwrapping it so the oldest cohort is first.
+	 */
+	private void grow()
+	{
+		int[] newSpawnTimes = new int[counts.length * 2];
+		int[] newOriginFloors = new int[counts.length * 2];
+		int[] newCounts = new int[counts.length * 2];
+		for (int i = 0; i < size; i++) {
+			int from = (head + i) % counts.length;
+			newSpawnTimes[i] = spawnTimes[from];
+			newOriginFloors[i] = originFloors[from];
+			newCounts[i] = counts[from];
+		}
+
+		spawnTimes = newSpawnTimes;
+		originFloors = newOriginFloors;
+		counts = newCounts;
+		head = 0;
+	}
+}
@@ -0,0 +1,164 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * Collects how long passengers wait and how long their whole journey takes.
+ * 		- wait time is from spawning on a floor to boarding an elevator
+ * 		- journey time is from spawning on a floor to getting off at the destination
+ * Both are kept per origin floor, per elevator and for the whole building in LatencyHistograms,
+ * so memory stays fixed no matter how many passengers go through the simulation.
+ */
+public class PassengerMetrics
+{
+	private LatencyHistogram[] waitByFloor;
+	private LatencyHistogram[] journeyByFloor;
+	private LatencyHistogram[] waitByElevator;
+	private LatencyHistogram[] journeyByElevator;
+	private LatencyHistogram totalWait;
+	private LatencyHistogram totalJourney;
+
+	/**
+	 * Default constructor.
+	 * @param floorCount [in] the number of building floors.
+	 * @param elevatorCount [in] the number of elevators.
+	 */
+	public PassengerMetrics(int floorCount, int elevatorCount)
+	{
+		waitByFloor = newHistograms(floorCount);
+		journeyByFloor = newHistograms(floorCount);
+		waitByElevator = newHistograms(elevatorCount);
+		journeyByElevator = newHistograms(elevatorCount);
+		totalWait = new LatencyHistogram();
+		totalJourney = new LatencyHistogram();
+	}
+
+	/**
+	 * Records passengers boarding an elevator.
+	 * @param originFloor [in] the floor the passengers spawned on.
+	 * @param elevatorID [in] the elevator they boarded.
+	 * @param waitTime [in] how long they waited.
+	 * @param count [in] the number of passengers.
+	 */
+	public void recordWait(int originFloor, int elevatorID, int waitTime, int count)
+	{
+		waitByFloor[originFloor].recordValue(waitTime, count);
+		waitByElevator[elevatorID].recordValue(waitTime, count);
+		totalWait.recordValue(waitTime, count);
+	}
+
+	/**
+	 * Records passengers getting off at their destination.
+	 * @param originFloor [in] the floor the passengers spawned on.
+	 * @param elevatorID [in] the elevator they rode.
+	 * @param journeyTime [in] how long it took from spawning to getting off.
+	 * @param count [in] the number of passengers.
+	 */
+	public void recordJourney(int originFloor, int elevatorID, int journeyTime, int count)
+	{
+		journeyByFloor[originFloor].recordValue(journeyTime, count);
+		journeyByElevator[elevatorID].recordValue(journeyTime, count);
+		totalJourney.recordValue(journeyTime, count);
+	}
+
+	/**
+	 * @param floor [in] the origin floor.
+	 * @return the wait times of passengers that spawned on the floor.
+	 */
+	public LatencyHistogram getWaitAtFloor(int floor)
+	{
+		return waitByFloor[floor];
+	}
+
+	/**
+	 * @param floor [in] the origin floor.
+	 * @return the journey times of passengers that spawned on the floor.
+	 */
+	public LatencyHistogram getJourneyFromFloor(int floor)
+	{
+		return journeyByFloor[floor];
+	}
+
+	/**
+	 * @param elevatorID [in] specific elevator.
+	 * @return the wait times of passengers that boarded the elevator.
+	 */
+	public LatencyHistogram getWaitForElevator(int elevatorID)
+	{
+		return waitByElevator[elevatorID];
+	}
+
+	/**
+	 * @param elevatorID [in] specific elevator.
+	 * @return the journey times of passengers that rode the elevator.
+	 */
+	public LatencyHistogram getJourneyOnElevator(int elevatorID)
+	{
+		return journeyByElevator[elevatorID];
+	}
+
+	/**
+	 * @return the wait times of every passenger.
+	 */
+	public LatencyHistogram getTotalWait()
+	{
+		return totalWait;
+	}
+
+	/**
+	 * @return the journey times of every passenger.
+	 */
+	public LatencyHistogram getTotalJourney()
+	{
+		return totalJourney;
+	}
+
+	/**
+	 * Writes every histogram for a SimulationSnapshot.
+	 * @param out [in] the snapshot stream.
+	 */
+	public void writeState(DataOutputStream out) throws IOException
+	{
+		for (LatencyHistogram[] histograms : new LatencyHistogram[][] { waitByFloor, journeyByFloor, waitByElevator, journeyByElevator }) {
+			for (LatencyHistogram histogram : histograms) {
+				histogram.writeState(out);
+			}
+		}
+		totalWait.writeState(out);
+		totalJourney.writeState(out);
+	}
+
+	/**
+	 * Replaces every histogram with the ones written by writeState().
+	 * @param in [in] the snapshot stream.
+	 */
+	public void readState(DataInputStream in) throws IOException
+	{
+		for (LatencyHistogram[] histograms : new LatencyHistogram[][] { waitByFloor, journeyByFloor, waitByElevator, journeyByElevator }) {
+			for (LatencyHistogram histogram : histograms) {
+				histogram.readState(in);
+			}
+		}
+		totalWait.readState(in);
+		totalJourney.readState(in);
+	}
+
+	/**
+	 * @param count [in] the number of histograms.
+	 * @return an array of empty histograms.
+	 */
+	private static LatencyHistogram[] newHistograms(int count)
+	{
+		LatencyHistogram[] histograms = new LatencyHistogram[count];
+		for (int i = 0; i < count; i++) {
+			histograms[i] = new LatencyHistogram();
+		}
+
+		return histograms;
+	}
+}
@@ -0,0 +1,24 @@
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * Somewhere an ArrivalSource can spawn passengers: usually the BuildingManager, or the ZonedSimulation
+ * that routes each passenger to the elevator bank serving their trip.
+ */
+public interface PassengerSink
+{
+	/**
+	 * @return the clock that decides which passengers are due.
+	 */
+	SimClock getClock();
+
+	/**
+	 * Spawns passengers at the current SimClock time.
+	 * @param floor [in] the floor the passengers spawn on.
+	 * @param goingToFloor [in] the floor they want to go to.
+	 * @param numPassengers [in] the number of passengers.
+	 */
+	void spawnPassengers(int floor, int goingToFloor, int numPassengers);
+}
@@ -0,0 +1,241 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * The waiting passengers one elevator has reserved, one entry per pickup floor and destination.
+ * An elevator reserves up to its free capacity when it is sent to a floor, so several elevators can
+ * share a busy floor without counting on the same passengers. The reserved passengers' cohorts move
+ * out of the floor's waiting cohorts into the entry, so every elevator boards its own passengers
+ * no matter which elevator gets to the floor first. The BuildingManager keeps the totals per floor
+ * and destination. An elevator only ever has a few pickup floors, so a plain list is enough.
+ * Not thread safe. Only the elevator that owns the list uses it, under the pickup floor's lock.
+ */
+public class PickupReservations
+{
+	private int[] floors;
+	private int[] destinations;
+	private int[] counts;
+	private PassengerCohortQueue[] cohorts;
+	private int size;
+	private int total;
+
+	/**
+	 * Default constructor for an empty list.
+	 */
+	public PickupReservations()
+	{
+		floors = new int[4];
+		destinations = new int[4];
+		counts = new int[4];
+		cohorts = new PassengerCohortQueue[4];
+	}
+
+	/**
+	 * Finds the reservation for a floor and destination, or adds an empty one.
+	 * @param floor [in] the floor the passengers are waiting on.
+	 * @param destination [in] the floor the passengers are going to.
+	 * @return the index of the reservation.
+	 */
+	public int add(int floor, int destination)
+	{
+		int index = indexOf(floor, destination);
+		if (index != -1) {
+			return index;
+		}
+
+		if (size == counts.length) {
+			grow();
+		}
+
+		floors[size] = floor;
+		destinations[size] = destination;
+		counts[size] = 0;
+		if (cohorts[size] == null) {
+			cohorts[size] = new PassengerCohortQueue();
+		}
+		return size++;
+	}
+
+	/**
+	 * Adds reserved passengers to a reservation.
+	 * @param index [in] the reservation, 0 to size() - 1.
+	 * @param spawnTime [in] the SimClock time the passengers spawned.
+	 * @param count [in] the number of passengers.
+	 */
+	public void addPassengers(int index, int spawnTime, int count)
+	{
+		cohorts[index].add(spawnTime, floors[index], count);
+		counts[index] += count;
+		total += count;
+	}
+
+	/**
+	 * Takes passengers off a reservation once they board, removing it when none are left.
+	 * The caller polls the same number of passengers from getCohorts(index).
+	 * @param index [in] the reservation, 0 to size() - 1.
+	 * @param count [in] the number of passengers that boarded, at most getCount(index).
+	 */
+	public void reduce(int index, int count)
+	{
+		counts[index] -= count;
+		total -= count;
+		if (counts[index] == 0) {
+			remove(index);
+		}
+	}
+
+	/**
+	 * Removes a reservation. The last one takes its place, so go through the list backwards when removing.
+	 * @param index [in] the reservation, 0 to size() - 1.
+	 */
+	public void remove(int index)
+	{
+		total -= counts[index];
+		cohorts[index].clear();
+		size--;
+
+		// Swap the queues so the emptied one is reused.
+		PassengerCohortQueue removed = cohorts[index];
+		floors[index] = floors[size];
+		destinations[index] = destinations[size];
+		counts[index] = counts[size];
+		cohorts[index] = cohorts[size];
+		cohorts[size] = removed;
+	}
+
+	/**
+	 * @param floor [in] the floor the passengers are waiting on.
+	 * @param destination [in] the floor the passengers are going to.
+	 * @return the index of the reservation, -1 if there is none.
+	 */
+	public int indexOf(int floor, int destination)
+	{
+		for (int i = 0; i < size; i++) {
+			if (floors[i] == floor && destinations[i] == destination) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * @return the number of reservations.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @param index [in] the reservation, 0 to size() - 1.
+	 * @return the floor its passengers are waiting on.
+	 */
+	public int getFloor(int index)
+	{
+		return floors[index];
+	}
+
+	/**
+	 * @param index [in] the reservation, 0 to size() - 1.
+	 * @return the floor its passengers are going to.
+	 */
+	public int getDestination(int index)
+	{
+		return destinations[index];
+	}
+
+	/**
+	 * @param index [in] the reservation, 0 to size() - 1.
+	 * @return its number of passengers.
+	 */
+	public int getCount(int index)
+	{
+		return counts[index];
+	}
+
+	/**
+	 * @param index [in] the reservation, 0 to size() - 1.
+	 * @return the cohorts of its passengers, oldest first.
+	 */
+	public PassengerCohortQueue getCohorts(int index)
+	{
+		return cohorts[index];
+	}
+
+	/**
+	 * @return the number of passengers reserved at every floor together.
+	 */
+	public int getTotal()
+	{
+		return total;
+	}
+
+	/**
+	 * @param floor [in] specific building floor.
+	 * @return the number of passengers reserved at floor.
+	 */
+	public int getTotalAt(int floor)
+	{
+		int passengers = 0;
+		for (int i = 0; i < size; i++) {
+			if (floors[i] == floor) {
+				passengers += counts[i];
+			}
+		}
+
+		return passengers;
+	}
+
+	/**
+	 * Writes the reservations for a SimulationSnapshot.
+	 * @param out [in] the snapshot stream.
+	 */
+	public void writeState(DataOutputStream out) throws IOException
+	{
+		out.writeInt(size);
+		for (int i = 0; i < size; i++) {
+			out.writeInt(floors[i]);
+			out.writeInt(destinations[i]);
+			out.writeInt(counts[i]);
+			cohorts[i].writeState(out);
+		}
+	}
+
+	/**
+	 * Replaces the reservations with the ones written by writeState().
+	 * @param in [in] the snapshot stream.
+	 */
+	public void readState(DataInputStream in) throws IOException
+	{
+		while (size > 0) {
+			remove(size - 1);
+		}
+
+		int reservations = in.readInt();
+		for (int i = 0; i < reservations; i++) {
+			int index = add(in.readInt(), in.readInt());
+			counts[index] = in.readInt();
+			total += counts[index];
+			cohorts[index].readState(in);
+		}
+	}
+
+	/**
+	 * Doubles the size of the arrays.
+	 */
+	private void grow()
+	{
+		floors = Arrays.copyOf(floors, floors.length * 2);
+		destinations = Arrays.copyOf(destinations, destinations.length * 2);
+		counts = Arrays.copyOf(counts, counts.length * 2);
+		cohorts = Arrays.copyOf(cohorts, cohorts.length * 2);
+	}
+}
@@ -1,42 +1,221 @@
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * @author Victoria Lai 49451704
  * @author Matthew Robinson 73641908
  */
 
 /**
- * A Simulation Clock that is shared by all threads of this project.
+ * A Simulation Clock that is shared by all threads of one simulation.
+ * Every BuildingManager has its own clock, so several simulations can run side by side in one JVM.
+ * In threaded mode the clock also acts as a barrier. Every tick is split in phases:
+ * 		- the main thread spawns passengers and releases the tick
+ * 		- the elevator threads process their due ElevatorEvents
+ * 		- the elevators that stopped at a floor, if any did, take turns in elevator ID order to finish there
+ * 		- the elevators take turns in elevator ID order to ask for floors and report back
+ * The main thread only ticks once every elevator has reported, and the elevators
+ * stay parked on the barrier until the next tick is released.
+ * The barrier and the turns only use a Phaser and a ReentrantLock, never synchronized,
+ * so the elevator threads can be virtual threads that unmount from their carrier while they wait.
+ * The time elevators spend waiting for their dispatch turn is added up for SimulationMetrics.
  */
 public class SimClock
 {
-	private static int simTime = 0;
-	private static int lineNumbers = 1;
+	private volatile int simTime = 0;
+	
+	private Phaser tickPhaser;
+	private AtomicBoolean roundProgressed = new AtomicBoolean();
+	private AtomicBoolean stopTurns = new AtomicBoolean();
+	
+	private ReentrantLock turnLock = new ReentrantLock();
+	// One condition per elevator, so passing the turn only wakes the next elevator.
+	private Condition[] turnConditions;
+	private int turn;  // Counts on through the rounds: turn round * elevatorCount + elevatorID.
+	private LongAdder turnWaitNanos = new LongAdder();
 	
 	/**
 	 * Allows the main thread to tick the clock once.
 	 * Not thread safe. Only main (or one specific) thread should be calling this.
 	 */
-	public static void tick()
+	public void tick()
 	{
 		simTime++;
 	}
 	
 	/**
-	 * Thread safe function to return the SimClock time.
-	 * @return the time.
+	 * Puts the clock back to time 0 so another simulation can run.
+	 * Not thread safe. Only main (or one specific) thread should be calling this.
 	 */
-	public static int getTime()
+	public void reset()
 	{
-		return simTime;
+		simTime = 0;
+	}
+	
+	/**
+	 * Allows the main thread to jump the clock forward to the next event time.
+	 * Used by the discrete-event mode, which skips the ticks where nothing happens.
+	 * Not thread safe. Only main (or one specific) thread should be calling this.
+	 * @param time [in] the new time. Must not be before the current time.
+	 */
+	public void advanceTo(int time)
+	{
+		simTime = time;
+	}
+	
+	/**
+	 * Sets up the tick barrier for the main thread and the elevator threads.
+	 * Must be called by the main thread before any elevator thread is started.
+	 * @param elevatorCount [in] the number of elevator threads that will wait on the clock.
+	 */
+	public void startTicking(int elevatorCount)
+	{
+		// The main thread is a party of the barrier as well.
+		tickPhaser = new Phaser(elevatorCount + 1);
+		turnConditions = new Condition[elevatorCount];
+		for (int i = 0; i < elevatorCount; i++) {
+			turnConditions[i] = turnLock.newCondition();
+		}
 	}
 	
 	/**
-	 * Nice function for all threads to print out values with line numbers and the simulated time.
-	 * Prints in the form:
-	 * "[N] X: arg"
-	 * Where N is the line number, X is the SimClock time value, arg is the string to print with it.
-	 * @param arg [in] String to print out
+	 * Releases the elevator threads so they can work on the current tick.
+	 * Only the main thread should be calling this, after it spawned the passengers for the tick.
 	 */
-	public static synchronized void printWithTime(String arg) {
-		System.out.println("[" + lineNumbers++ + "] Time " + simTime + ": " + arg);
+	public void releaseTick()
+	{
+		roundProgressed.set(false);
+		stopTurns.set(false);
+		turn = 0;
+		tickPhaser.arriveAndAwaitAdvance();
+		
+		// Wait for the elevators to finish their ElevatorEvents before any of them asks for a floor.
+		tickPhaser.arriveAndAwaitAdvance();
+	}
+	
+	/**
+	 * Blocks the main thread until every elevator thread is done with the current tick.
+	 * @return whether or not any elevator changed state.
+	 * 		   If one did, it may have freed up a floor and the tick should be released again.
+	 */
+	public boolean awaitTickDone()
+	{
+		tickPhaser.arriveAndAwaitAdvance();
+		return roundProgressed.get();
+	}
+	
+	/**
+	 * Called by an elevator thread. Parks the thread until the main thread releases a tick.
+	 * @return false if the clock was stopped and the thread should exit.
+	 */
+	public boolean awaitTick()
+	{
+		return tickPhaser.arriveAndAwaitAdvance() >= 0;
+	}
+	
+	/**
+	 * Called by an elevator thread when it has processed its due ElevatorEvents.
+	 * Blocks until every other elevator has done the same.
+	 */
+	public void finishEvents()
+	{
+		tickPhaser.arriveAndAwaitAdvance();
+	}
+	
+	/**
+	 * Called by an elevator thread while it processes its ElevatorEvents, if it has to finish a stop in its turn.
+	 */
+	public void requestStopTurns()
+	{
+		// Only write the flag when it changes, so the elevators don't fight over its cache line.
+		if (!stopTurns.get()) {
+			stopTurns.set(true);
+		}
+	}
+	
+	/**
+	 * Called by an elevator thread after finishEvents(). Every elevator gets the same answer.
+	 * @return whether or not the elevators take an extra round of turns to finish their stops.
+	 */
+	public boolean hasStopTurns()
+	{
+		return stopTurns.get();
+	}
+	
+	/**
+	 * Blocks an elevator thread until it is its turn in a round of the current tick.
+	 * Every elevator has to take its turn in a round before the next round starts.
+	 * @param round [in] the round, counting from 0 at every release of the tick.
+	 * @param elevatorID [in] the elevator ID waiting for its turn.
+	 */
+	public void awaitTurn(int round, int elevatorID)
+	{
+		int myTurn = round * turnConditions.length + elevatorID;
+		turnLock.lock();
+		try {
+			// Only time the elevators that actually have to wait, so the first one costs nothing extra.
+			if (turn != myTurn) {
+				long start = System.nanoTime();
+				while (turn != myTurn) {
+					turnConditions[elevatorID].awaitUninterruptibly();
+				}
+				turnWaitNanos.add(System.nanoTime() - start);
+			}
+		}
+		finally {
+			turnLock.unlock();
+		}
+	}
+	
+	/**
+	 * Hands the turn to the next elevator, or to the first one for the next round.
+	 */
+	public void passTurn()
+	{
+		turnLock.lock();
+		turn++;
+		turnConditions[turn % turnConditions.length].signal();
+		turnLock.unlock();
+	}
+	
+	/**
+	 * Called by an elevator thread when it has finished its work for the current tick.
+	 * @param progressed [in] whether or not the elevator changed state during the tick.
+	 */
+	public void finishTick(boolean progressed)
+	{
+		if (progressed) {
+			roundProgressed.set(true);
+		}
+		tickPhaser.arriveAndAwaitAdvance();
+	}
+	
+	/**
+	 * Stops the tick barrier. Every elevator thread waiting in awaitTick() returns false.
+	 */
+	public void stopTicking()
+	{
+		tickPhaser.forceTermination();
+	}
+	
+	/**
+	 * Thread safe.
+	 * @return the total nanoseconds elevator threads spent waiting in awaitTurn().
+	 */
+	public long getTurnWaitNanos()
+	{
+		return turnWaitNanos.sum();
+	}
+	
+	/**
+	 * Thread safe function to return the SimClock time.
+	 * @return the time.
+	 */
+	public int getTime()
+	{
+		return simTime;
 	}
 }
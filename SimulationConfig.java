@@ -0,0 +1,201 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * The settings read in from a config file:
+ * 		- line 1: the simulation length
+ * 		- line 2: the simulated second rate, in milliseconds per tick
+ * 		- the rest: passenger arrivals, one line per building floor starting with Floor 0.
+ * 		  A line that starts with "F:" is for Floor F instead, so a floor can have any number of lines.
+ * 		  Blank lines are floors without arrivals, lines starting with "#" are comments.
+ * The arrivals of a line are separated by ";". Each arrival is one of:
+ * 		- "count dest period": count passengers going to dest spawn every period ticks, starting at period
+ * 		- "count dest @time": count passengers going to dest spawn once, at time
+ * 		- "count dest period start-end": count passengers going to dest spawn every period ticks from start to end
+ * The file is streamed line by line, so schedules can be much bigger than the building.
+ */
+public class SimulationConfig
+{
+	private int simulationLength;
+	private int simulatedSecondRate;
+	private ArrivalSchedule arrivals;
+
+	/**
+	 * @return the last SimClock time to simulate.
+	 */
+	public int getSimulationLength()
+	{
+		return simulationLength;
+	}
+
+	/**
+	 * @return the milliseconds to sleep every tick in threaded mode.
+	 */
+	public int getSimulatedSecondRate()
+	{
+		return simulatedSecondRate;
+	}
+
+	/**
+	 * @return the passenger arrivals.
+	 */
+	public ArrivalSchedule getArrivals()
+	{
+		return arrivals;
+	}
+
+	/**
+	 * Reads and checks a config file.
+	 * @param fileName [in] path of the config file.
+	 * @param floorCount [in] the number of building floors the arrivals must fit in.
+	 * @return the settings in the file.
+	 * @throws ConfigException if the file can't be read or has a mistake in it.
+	 */
+	public static SimulationConfig load(String fileName, int floorCount)
+	{
+		SimulationConfig config = new SimulationConfig();
+		config.arrivals = new ArrivalSchedule();
+
+		try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+			config.simulationLength = parseInt(fileName, 1, reader.readLine(), "simulation length");
+			config.simulatedSecondRate = parseInt(fileName, 2, reader.readLine(), "simulated second rate");
+			if (config.simulationLength < 0) {
+				throw new ConfigException(fileName, 1, "the simulation length can't be negative");
+			}
+			if (config.simulatedSecondRate < 0) {
+				throw new ConfigException(fileName, 2, "the simulated second rate can't be negative");
+			}
+
+			int lineNumber = 2;
+			int nextFloor = 0;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if (line.startsWith("#")) {
+					continue;
+				}
+
+				int floor;
+				int colon = line.indexOf(':');
+				if (colon != -1) {
+					floor = parseInt(fileName, lineNumber, line.substring(0, colon), "floor");
+					line = line.substring(colon + 1);
+				}
+				else {
+					floor = nextFloor++;
+					// Blank lines don't need a floor, e.g. at the end of the file.
+					if (line.isEmpty()) {
+						continue;
+					}
+				}
+				if (floor < 0 || floor >= floorCount) {
+					throw new ConfigException(fileName, lineNumber, "Floor " + floor + " is not in the building (Floors 0-" +
+											  (floorCount - 1) + ")");
+				}
+
+				for (String entry : line.split(";")) {
+					entry = entry.trim();
+					// Skip blank entries so an empty line means an empty floor.
+					if (!entry.isEmpty()) {
+						config.addArrival(fileName, lineNumber, floor, floorCount, entry);
+					}
+				}
+			}
+		}
+		catch (IOException e) {
+			throw new ConfigException("Cannot read config file " + fileName + ": " + e.getMessage(), e);
+		}
+
+		return config;
+	}
+
+	/**
+	 * Parses and checks one arrival and adds it to the schedule.
+	 */
+	private void addArrival(String fileName, int lineNumber, int floor, int floorCount, String entry)
+	{
+		String[] fields = entry.split("\\s+");
+		if (fields.length != 3 && fields.length != 4) {
+			throw new ConfigException(fileName, lineNumber, "\"" + entry + "\" should be \"count dest period\", " +
+									  "\"count dest @time\" or \"count dest period start-end\"");
+		}
+
+		int count = parseInt(fileName, lineNumber, fields[0], "passenger count");
+		int destination = parseInt(fileName, lineNumber, fields[1], "destination floor");
+		if (count <= 0) {
+			throw new ConfigException(fileName, lineNumber, "\"" + entry + "\" needs at least 1 passenger");
+		}
+		if (destination < 0 || destination >= floorCount) {
+			throw new ConfigException(fileName, lineNumber, "\"" + entry + "\" goes to Floor " + destination +
+									  ", which is not in the building (Floors 0-" + (floorCount - 1) + ")");
+		}
+		if (destination == floor) {
+			throw new ConfigException(fileName, lineNumber, "\"" + entry + "\" goes to the floor it spawns on");
+		}
+
+		// One-shot arrival.
+		if (fields[2].startsWith("@")) {
+			if (fields.length != 3) {
+				throw new ConfigException(fileName, lineNumber, "\"" + entry + "\" can't have a time window");
+			}
+			int time = parseInt(fileName, lineNumber, fields[2].substring(1), "time");
+			if (time < 0) {
+				throw new ConfigException(fileName, lineNumber, "\"" + entry + "\" spawns before Time 0");
+			}
+			arrivals.add(floor, count, destination, time, 0, time);
+			return;
+		}
+
+		int period = parseInt(fileName, lineNumber, fields[2], "period");
+		if (period <= 0) {
+			throw new ConfigException(fileName, lineNumber, "\"" + entry + "\" needs a period of at least 1, " +
+									  "use \"count dest @time\" to spawn once");
+		}
+
+		// Periodic arrival.
+		if (fields.length == 3) {
+			arrivals.add(floor, count, destination, period, period, ArrivalSchedule.NEVER);
+			return;
+		}
+
+		// Periodic arrival in a time window.
+		int dash = fields[3].indexOf('-');
+		if (dash == -1) {
+			throw new ConfigException(fileName, lineNumber, "\"" + fields[3] + "\" should be a time window \"start-end\"");
+		}
+		int start = parseInt(fileName, lineNumber, fields[3].substring(0, dash), "window start");
+		int end = parseInt(fileName, lineNumber, fields[3].substring(dash + 1), "window end");
+		if (start < 0 || end < start) {
+			throw new ConfigException(fileName, lineNumber, "\"" + fields[3] + "\" is not a valid time window");
+		}
+		arrivals.add(floor, count, destination, start, period, end);
+	}
+
+	/**
+	 * @param fileName [in] the config file, for the error message.
+	 * @param lineNumber [in] the line being read, for the error message.
+	 * @param text [in] the text to parse.
+	 * @param what [in] what the number is, for the error message.
+	 * @return the number in text.
+	 * @throws ConfigException if text is missing or not a number.
+	 */
+	private static int parseInt(String fileName, int lineNumber, String text, String what)
+	{
+		if (text == null) {
+			throw new ConfigException(fileName, lineNumber, "missing the " + what);
+		}
+		try {
+			return Integer.parseInt(text.trim());
+		}
+		catch (NumberFormatException e) {
+			throw new ConfigException(fileName, lineNumber, "the " + what + " \"" + text.trim() + "\" is not a number");
+		}
+	}
+}
@@ -0,0 +1,282 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * Live metrics of a running simulation, served as Prometheus text on a local HTTP endpoint
+ * (http://localhost:PORT/metrics) and as a JMX MBean named "ElevatorSimulation:type=Metrics".
+ * The building and elevator values come from a BuildingView captured at the next tick boundary,
+ * so every scrape is consistent and current. The lock waits come from LongAdders the SimClock and BuildingManager keep.
+ * A scrape never takes a lock the simulation uses, so it can't stall the elevators.
+ * The building manager must have published a view before the metrics start.
+ */
+public class SimulationMetrics implements SimulationMetricsMBean
+{
+	private static final String OBJECT_NAME = "ElevatorSimulation:type=Metrics";
+	// How long a scrape waits for the next tick boundary before it settles for the latest view.
+	private static final long FRESH_VIEW_TIMEOUT_MILLIS = 50;
+
+	private BuildingManager manager;
+	private SimClock clock;
+	private int startTime;
+	private long startNanos;
+	private HttpServer server;
+	private ObjectName objectName;
+
+	/**
+	 * Default constructor. Ticks per second are measured from now on.
+	 * @param sharedManager [in] the building manager of the simulation, with every elevator registered.
+	 */
+	public SimulationMetrics(BuildingManager sharedManager)
+	{
+		manager = sharedManager;
+		clock = sharedManager.getClock();
+		startTime = clock.getTime();
+		startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Starts serving the metrics on the loopback interface and registers the MBean.
+	 * @param port [in] the HTTP port, 0 for any free port.
+	 * @throws IOException if the port can't be opened.
+	 */
+	public void start(int port) throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/metrics", this::handleScrape);
+		server.start();
+
+		try {
+			objectName = new ObjectName(OBJECT_NAME);
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		}
+		catch (JMException e) {
+			// Another simulation in this JVM has the name. The HTTP endpoint still works.
+			objectName = null;
+			System.out.println("Cannot register " + OBJECT_NAME + " MBean: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Stops the HTTP endpoint and unregisters the MBean.
+	 */
+	public void stop()
+	{
+		if (server != null) {
+			server.stop(0);
+			server = null;
+		}
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			}
+			catch (JMException e) { }
+			objectName = null;
+		}
+	}
+
+	/**
+	 * @return the port the HTTP endpoint listens on, -1 if it isn't running.
+	 */
+	public int getPort()
+	{
+		return server == null ? -1 : server.getAddress().getPort();
+	}
+
+	/**
+	 * Serves one scrape of /metrics.
+	 * @param exchange [in] the HTTP request and response.
+	 */
+	private void handleScrape(HttpExchange exchange) throws IOException
+	{
+		byte[] body = toPrometheusText().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	/**
+	 * @return every metric in the Prometheus text exposition format.
+	 */
+	public String toPrometheusText()
+	{
+		BuildingView view = manager.awaitFreshView(FRESH_VIEW_TIMEOUT_MILLIS);
+		StringBuilder text = new StringBuilder();
+
+		header(text, "elevator_sim_time_ticks", "gauge", "SimClock time of the building view.");
+		text.append("elevator_sim_time_ticks ").append(view.getTime()).append('\n');
+		header(text, "elevator_view_version", "counter", "Version of the building view the other values come from.");
+		text.append("elevator_view_version ").append(view.getVersion()).append('\n');
+		header(text, "elevator_ticks_per_second", "gauge", "SimClock ticks simulated per second since the metrics started.");
+		text.append("elevator_ticks_per_second ").append(format(ticksPerSecond(view))).append('\n');
+
+		header(text, "elevator_floor_waiting_passengers", "gauge", "Passengers waiting for an elevator at each floor.");
+		for (int floor = 0; floor < view.getFloorCount(); floor++) {
+			text.append("elevator_floor_waiting_passengers{floor=\"").append(floor).append("\"} ")
+				.append(view.getWaitingPassengers(floor)).append('\n');
+		}
+
+		header(text, "elevator_load_passengers", "gauge", "Passengers in each elevator.");
+		for (int i = 0; i < view.getElevatorCount(); i++) {
+			text.append("elevator_load_passengers{elevator=\"").append(i).append("\"} ")
+				.append(view.getNumPassengers(i)).append('\n');
+		}
+
+		header(text, "elevator_status", "gauge", "1 for the current status of each elevator, 0 for the others.");
+		for (int i = 0; i < view.getElevatorCount(); i++) {
+			for (Elevator.Status s : Elevator.Status.values()) {
+				text.append("elevator_status{elevator=\"").append(i).append("\",status=\"")
+					.append(s.name().toLowerCase(Locale.ROOT)).append("\"} ").append(s == view.getStatus(i) ? 1 : 0).append('\n');
+			}
+		}
+
+		header(text, "elevator_utilization_ratio", "gauge", "Share of the simulation each elevator was not idle.");
+		for (int i = 0; i < view.getElevatorCount(); i++) {
+			text.append("elevator_utilization_ratio{elevator=\"").append(i).append("\"} ")
+				.append(format(view.getUtilization(i))).append('\n');
+		}
+
+		header(text, "elevator_passengers_boarded_total", "counter", "Passengers that boarded an elevator.");
+		text.append("elevator_passengers_boarded_total ").append(view.getPassengersBoarded()).append('\n');
+		header(text, "elevator_passengers_arrived_total", "counter", "Passengers that arrived at their destination.");
+		text.append("elevator_passengers_arrived_total ").append(view.getPassengersArrived()).append('\n');
+
+		header(text, "elevator_dispatch_turn_wait_seconds_total", "counter",
+			   "Time elevator threads waited for their turn to ask for a floor.");
+		text.append("elevator_dispatch_turn_wait_seconds_total ").append(format(getDispatchTurnWaitSeconds())).append('\n');
+		header(text, "elevator_cohort_lock_wait_seconds_total", "counter",
+			   "Time elevator threads waited for the cohort lock of a floor.");
+		text.append("elevator_cohort_lock_wait_seconds_total ").append(format(getCohortLockWaitSeconds())).append('\n');
+
+		return text.toString();
+	}
+
+	@Override
+	public int getSimulationTime()
+	{
+		return manager.awaitFreshView(FRESH_VIEW_TIMEOUT_MILLIS).getTime();
+	}
+
+	@Override
+	public long getViewVersion()
+	{
+		return manager.awaitFreshView(FRESH_VIEW_TIMEOUT_MILLIS).getVersion();
+	}
+
+	@Override
+	public double getTicksPerSecond()
+	{
+		return ticksPerSecond(manager.awaitFreshView(FRESH_VIEW_TIMEOUT_MILLIS));
+	}
+
+	@Override
+	public int[] getWaitingPassengers()
+	{
+		BuildingView view = manager.awaitFreshView(FRESH_VIEW_TIMEOUT_MILLIS);
+		int[] waiting = new int[view.getFloorCount()];
+		for (int floor = 0; floor < waiting.length; floor++) {
+			waiting[floor] = view.getWaitingPassengers(floor);
+		}
+		return waiting;
+	}
+
+	@Override
+	public int[] getElevatorLoads()
+	{
+		BuildingView view = manager.awaitFreshView(FRESH_VIEW_TIMEOUT_MILLIS);
+		int[] loads = new int[view.getElevatorCount()];
+		for (int i = 0; i < loads.length; i++) {
+			loads[i] = view.getNumPassengers(i);
+		}
+		return loads;
+	}
+
+	@Override
+	public String[] getElevatorStatuses()
+	{
+		BuildingView view = manager.awaitFreshView(FRESH_VIEW_TIMEOUT_MILLIS);
+		String[] statuses = new String[view.getElevatorCount()];
+		for (int i = 0; i < statuses.length; i++) {
+			statuses[i] = view.getStatus(i).name();
+		}
+		return statuses;
+	}
+
+	@Override
+	public double[] getElevatorUtilizations()
+	{
+		BuildingView view = manager.awaitFreshView(FRESH_VIEW_TIMEOUT_MILLIS);
+		double[] utilizations = new double[view.getElevatorCount()];
+		for (int i = 0; i < utilizations.length; i++) {
+			utilizations[i] = view.getUtilization(i);
+		}
+		return utilizations;
+	}
+
+	@Override
+	public long getPassengersBoarded()
+	{
+		return manager.awaitFreshView(FRESH_VIEW_TIMEOUT_MILLIS).getPassengersBoarded();
+	}
+
+	@Override
+	public long getPassengersArrived()
+	{
+		return manager.awaitFreshView(FRESH_VIEW_TIMEOUT_MILLIS).getPassengersArrived();
+	}
+
+	@Override
+	public double getDispatchTurnWaitSeconds()
+	{
+		return clock.getTurnWaitNanos() / 1e9;
+	}
+
+	@Override
+	public double getCohortLockWaitSeconds()
+	{
+		return manager.getCohortLockWaitNanos() / 1e9;
+	}
+
+	/**
+	 * @param view [in] the latest building view.
+	 * @return the average number of ticks simulated per second from the start of the metrics to the view.
+	 */
+	private double ticksPerSecond(BuildingView view)
+	{
+		double seconds = (System.nanoTime() - startNanos) / 1e9;
+		return seconds <= 0 ? 0 : (view.getTime() - startTime) / seconds;
+	}
+
+	/**
+	 * Appends the HELP and TYPE lines of a metric.
+	 */
+	private static void header(StringBuilder text, String name, String type, String help)
+	{
+		text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	/**
+	 * @param value [in] a metric value.
+	 * @return the value with a "." decimal point, whatever the default locale is.
+	 */
+	private static String format(double value)
+	{
+		return String.format(Locale.ROOT, "%.6f", value);
+	}
+}
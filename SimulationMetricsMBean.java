@@ -0,0 +1,67 @@
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * The JMX view of SimulationMetrics, e.g. for JConsole or VisualVM.
+ * Arrays are indexed by floor or elevator ID. Each attribute is read from the latest BuildingView,
+ * so attributes read one after the other can come from different views.
+ */
+public interface SimulationMetricsMBean
+{
+	/**
+	 * @return the SimClock time of the latest building view.
+	 */
+	int getSimulationTime();
+
+	/**
+	 * @return the version of the latest building view.
+	 */
+	long getViewVersion();
+
+	/**
+	 * @return the average number of SimClock ticks simulated per wall clock second since the metrics started.
+	 */
+	double getTicksPerSecond();
+
+	/**
+	 * @return the number of passengers waiting at each floor.
+	 */
+	int[] getWaitingPassengers();
+
+	/**
+	 * @return the number of passengers in each elevator.
+	 */
+	int[] getElevatorLoads();
+
+	/**
+	 * @return the status of each elevator: IDLE, PICKUP or DROPOFF.
+	 */
+	String[] getElevatorStatuses();
+
+	/**
+	 * @return the share of the simulation each elevator was not idle, from 0 to 1.
+	 */
+	double[] getElevatorUtilizations();
+
+	/**
+	 * @return the number of passengers that boarded an elevator.
+	 */
+	long getPassengersBoarded();
+
+	/**
+	 * @return the number of passengers that arrived at their destination.
+	 */
+	long getPassengersArrived();
+
+	/**
+	 * @return the total seconds elevator threads waited for their turn to ask for a floor.
+	 */
+	double getDispatchTurnWaitSeconds();
+
+	/**
+	 * @return the total seconds elevator threads waited for the cohort lock of a floor.
+	 */
+	double getCohortLockWaitSeconds();
+}
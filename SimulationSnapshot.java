@@ -0,0 +1,193 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * A compact binary snapshot of a whole simulation between two ticks, so a long run can be paused
+ * and resumed, or a building warmed up once and many what-if runs started from the same state.
+ * The file is gzipped and holds, in order:
+ * 		- a header: "ELVS", version, floor count, elevator count, SimClock time,
+ * 		  simulation length and simulated second rate
+ * 		- the BuildingManager: every floor's counters, reservations and waiting cohorts, the passenger metrics,
+ * 		  the demand forecast and the dispatch strategy's state
+ * 		- every Elevator: its counters, moveQueue, passengerDestinations, riding cohorts and pickup reservations
+ * 		- every ArrivalSource and where it is up to, e.g. the next time of every config arrival
+ * 		  and the random state of a TrafficGenerator
+ * Resuming a snapshot gives the same results as never having stopped, in either simulation mode.
+ * Settings like capacity, dispatch strategy, parking policy, the TravelTimeModel and the EventLog level are not part of the snapshot,
+ * so they can be changed for the resumed run.
+ */
+public class SimulationSnapshot
+{
+	// Source types, written first by ArrivalSource.writeState().
+	public static final int ARRIVAL_QUEUE = 0;
+	public static final int TRAFFIC_GENERATOR = 1;
+
+	private static final int MAGIC = 0x454C5653;  // "ELVS"
+	private static final int VERSION = 5;
+
+	private int simulationLength;
+	private int simulatedSecondRate;
+	private ArrayList<ArrivalSource> arrivals;
+
+	/**
+	 * @return the last SimClock time to simulate.
+	 */
+	public int getSimulationLength()
+	{
+		return simulationLength;
+	}
+
+	/**
+	 * @return the milliseconds to sleep every tick in threaded mode.
+	 */
+	public int getSimulatedSecondRate()
+	{
+		return simulatedSecondRate;
+	}
+
+	/**
+	 * @return the passenger arrival sources, where they were up to.
+	 */
+	public ArrayList<ArrivalSource> getArrivals()
+	{
+		return arrivals;
+	}
+
+	/**
+	 * Writes a snapshot. Only call this between ticks, while no elevator is working.
+	 * @param fileName [in] path of the snapshot file.
+	 * @param manager [in] the building manager.
+	 * @param elevators [in] every elevator of the building.
+	 * @param sources [in] the passenger arrival sources.
+	 * @param simulationLength [in] the last SimClock time to simulate.
+	 * @param simulatedSecondRate [in] the milliseconds to sleep every tick in threaded mode.
+	 */
+	public static void write(String fileName, BuildingManager manager, Elevator[] elevators, List<ArrivalSource> sources,
+							 int simulationLength, int simulatedSecondRate) throws IOException
+	{
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new GZIPOutputStream(new FileOutputStream(fileName))))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(manager.getFloorCount());
+			out.writeInt(elevators.length);
+			out.writeInt(manager.getClock().getTime());
+			out.writeInt(simulationLength);
+			out.writeInt(simulatedSecondRate);
+
+			manager.writeState(out);
+			for (Elevator e : elevators) {
+				e.writeState(out);
+			}
+
+			out.writeInt(sources.size());
+			for (ArrivalSource source : sources) {
+				source.writeState(out);
+			}
+		}
+	}
+
+	/**
+	 * Reads a snapshot into a building of the same size and sets its SimClock to the snapshot time.
+	 * @param fileName [in] path of the snapshot file.
+	 * @param manager [in] the building manager to restore.
+	 * @param elevators [in] every elevator of the building, to restore.
+	 * @return the settings and arrival sources of the snapshot.
+	 * @throws IOException if the file can't be read, isn't a snapshot or is for another building size.
+	 */
+	public static SimulationSnapshot read(String fileName, BuildingManager manager, Elevator[] elevators) throws IOException
+	{
+		try (DataInputStream in = open(fileName)) {
+			int floorCount = in.readInt();
+			int elevatorCount = in.readInt();
+			if (floorCount != manager.getFloorCount() || elevatorCount != elevators.length) {
+				throw new IOException("the snapshot is for " + floorCount + " floors and " + elevatorCount +
+									  " elevators, not " + manager.getFloorCount() + " and " + elevators.length);
+			}
+
+			SimulationSnapshot snapshot = new SimulationSnapshot();
+			int time = in.readInt();
+			snapshot.simulationLength = in.readInt();
+			snapshot.simulatedSecondRate = in.readInt();
+
+			manager.getClock().advanceTo(time);
+			manager.readState(in);
+			for (Elevator e : elevators) {
+				e.readState(in);
+			}
+
+			int sourceCount = in.readInt();
+			snapshot.arrivals = new ArrayList<ArrivalSource>();
+			for (int i = 0; i < sourceCount; i++) {
+				snapshot.arrivals.add(readSource(in));
+			}
+
+			return snapshot;
+		}
+	}
+
+	/**
+	 * Reads just the building size of a snapshot, to create a simulation to read it into.
+	 * @param fileName [in] path of the snapshot file.
+	 * @return the floor count and the elevator count.
+	 * @throws IOException if the file can't be read or isn't a snapshot.
+	 */
+	public static int[] readBuildingSize(String fileName) throws IOException
+	{
+		try (DataInputStream in = open(fileName)) {
+			return new int[] { in.readInt(), in.readInt() };
+		}
+	}
+
+	/**
+	 * Opens a snapshot and checks its header.
+	 * @param fileName [in] path of the snapshot file.
+	 * @return the stream, just after the version.
+	 */
+	private static DataInputStream open(String fileName) throws IOException
+	{
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(fileName))));
+		if (in.readInt() != MAGIC) {
+			in.close();
+			throw new IOException(fileName + " is not a simulation snapshot");
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			in.close();
+			throw new IOException(fileName + " is a version " + version + " snapshot, only version " + VERSION + " is supported");
+		}
+
+		return in;
+	}
+
+	/**
+	 * @param in [in] the snapshot stream, at the start of a source.
+	 * @return the source.
+	 */
+	private static ArrivalSource readSource(DataInputStream in) throws IOException
+	{
+		int type = in.readByte();
+		switch (type) {
+			case ARRIVAL_QUEUE:
+				return ArrivalQueue.readState(in);
+			case TRAFFIC_GENERATOR:
+				return TrafficGenerator.readState(in);
+			default:
+				throw new IOException("unknown arrival source type " + type);
+		}
+	}
+}
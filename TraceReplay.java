@@ -0,0 +1,237 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * Replays an EventTrace file to rebuild the BuildingManager and Elevator state at any tick.
+ * Usage: java TraceReplay FILE [-tick T] [-dump] [-check OUTPUT]
+ * 		- "-tick T" stops after the events of tick T. By default the whole trace is replayed.
+ * 		- "-dump" prints every event of the trace as it is replayed.
+ * 		- "-check OUTPUT" compares the report with the one at the end of OUTPUT, the saved output of the run
+ * 		  that wrote the trace, and exits with status 1 if they differ.
+ * The building state report is printed at the end, the same as printBuildingState() at the end of a run.
+ * Only counters and passengers are rebuilt. The elevators' planned moves are not in the trace,
+ * so a replayed simulation can report on but not continue the original run.
+ */
+public class TraceReplay
+{
+	private static final String REPORT_HEADER = "---------------BUILDING STATE---------------";
+	private static final String[] EVENT_NAMES = { "SPAWNED", "CLAIMED", "RELEASED", "ARRIVED", "BOARDED", "UNLOADED", "RESERVED",
+												   "UNRESERVED" };
+
+	private BuildingManager manager;
+	private ElevatorSimulation simulation;
+	private boolean dump;
+	private String checkFileName;
+	private boolean reportMatches = true;
+	private long replayedEvents;
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length == 0) {
+			System.out.println("Usage: java TraceReplay FILE [-tick T] [-dump] [-check OUTPUT]");
+			return;
+		}
+
+		int untilTick = Integer.MAX_VALUE;
+		boolean dump = false;
+		String checkFileName = null;
+		// The replayed events shouldn't be logged again, only the report at the end.
+		EventLog.setLevel(EventLog.Level.SUMMARY);
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].equals("-tick") && i + 1 < args.length) {
+				untilTick = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-dump")) {
+				dump = true;
+			}
+			else if (args[i].equals("-check") && i + 1 < args.length) {
+				checkFileName = args[++i];
+			}
+		}
+
+		TraceReplay replay = new TraceReplay();
+		replay.dump = dump;
+		replay.checkFileName = checkFileName;
+		replay.replay(args[0], untilTick);
+		if (!replay.reportMatches) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Replays a trace file and prints the building state at the end.
+	 * @param fileName [in] the trace file.
+	 * @param untilTick [in] the last tick to replay.
+	 * @throws IOException if the file can't be read or isn't a trace.
+	 */
+	public void replay(String fileName, int untilTick) throws IOException
+	{
+		try (RandomAccessFile file = new RandomAccessFile(fileName, "r");
+			 FileChannel channel = file.getChannel()) {
+			long length = channel.size() - channel.size() % EventTrace.RECORD_SIZE;
+			if (length < EventTrace.RECORD_SIZE) {
+				throw new IOException(fileName + " is not a trace file");
+			}
+
+			int lastTick = 0;
+			for (long start = 0; start < length; start += EventTrace.SEGMENT_SIZE) {
+				MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, start,
+													   Math.min(EventTrace.SEGMENT_SIZE, length - start));
+				segment.order(ByteOrder.LITTLE_ENDIAN);
+
+				int index = 0;
+				if (start == 0) {
+					readHeader(segment, fileName);
+					index = EventTrace.RECORD_SIZE;
+				}
+
+				for (; index < segment.limit(); index += EventTrace.RECORD_SIZE) {
+					int tick = segment.getInt(index);
+					if (tick > untilTick) {
+						finish(untilTick);
+						return;
+					}
+					lastTick = tick;
+					apply(tick, segment.getShort(index + 4), segment.getShort(index + 6), segment.getShort(index + 8),
+						  segment.getShort(index + 10), segment.getInt(index + 12));
+				}
+			}
+
+			finish(untilTick == Integer.MAX_VALUE ? lastTick : untilTick);
+		}
+	}
+
+	/**
+	 * Checks the trace header and sets up a building of the same size.
+	 */
+	private void readHeader(MappedByteBuffer header, String fileName) throws IOException
+	{
+		if (header.getInt(0) != EventTrace.MAGIC) {
+			throw new IOException(fileName + " is not a trace file");
+		}
+		if (header.getInt(4) != EventTrace.VERSION) {
+			throw new IOException(fileName + " has trace version " + header.getInt(4) + ", expected " + EventTrace.VERSION);
+		}
+
+		simulation = new ElevatorSimulation(header.getInt(8), header.getInt(12));
+		manager = simulation.getBuildingManager();
+		manager.getClock().reset();
+		EventLog.reset();
+	}
+
+	/**
+	 * Applies one trace record to the building.
+	 */
+	private void apply(int tick, int type, int elevatorID, int floor, int goingToFloor, int count)
+	{
+		manager.getClock().advanceTo(tick);
+		replayedEvents++;
+		if (dump) {
+			System.out.println("Time " + tick + ": " + EVENT_NAMES[type] + " elevator=" + elevatorID + " floor=" + floor +
+							   " goingTo=" + goingToFloor + " count=" + count);
+		}
+
+		switch (type) {
+		case EventTrace.SPAWNED:
+			manager.spawnPassengers(floor, goingToFloor, count);
+			break;
+		case EventTrace.CLAIMED:
+			manager.restoreApproachingElevator(floor, elevatorID);
+			break;
+		case EventTrace.RELEASED:
+			manager.clearApproachingElevator(floor);
+			break;
+		case EventTrace.ARRIVED:
+			manager.getElevator(elevatorID).replayArrival(floor);
+			break;
+		case EventTrace.BOARDED:
+			manager.getElevator(elevatorID).replayBoarding(floor, goingToFloor, count);
+			break;
+		case EventTrace.UNLOADED:
+			manager.getElevator(elevatorID).replayUnloading(floor);
+			break;
+		case EventTrace.RESERVED:
+			manager.restoreReservation(elevatorID, floor, goingToFloor, count);
+			break;
+		case EventTrace.UNRESERVED:
+			manager.restoreRelease(elevatorID, floor, goingToFloor);
+			break;
+		}
+	}
+
+	/**
+	 * Prints the building state as it was at the end of a tick, and compares it with checkFileName if there is one.
+	 */
+	private void finish(int tick) throws IOException
+	{
+		manager.getClock().advanceTo(tick);
+		EventLog.flush();
+		System.out.println("Replayed " + replayedEvents + " events up to Time " + tick + ".");
+		if (checkFileName == null) {
+			simulation.printBuildingState();
+			return;
+		}
+
+		// Print the report into a buffer too, to compare it line by line.
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		PrintStream console = System.out;
+		System.setOut(new PrintStream(buffer, true));
+		try {
+			simulation.printBuildingState();
+		}
+		finally {
+			System.setOut(console);
+		}
+		String report = buffer.toString();
+		System.out.print(report);
+		checkReport(report.split("\\R", -1));
+	}
+
+	/**
+	 * Compares a replayed report with the last report in checkFileName, from its BUILDING STATE line on.
+	 * Prints the first line that differs, if any.
+	 * @param replayed [in] the lines of the replayed report.
+	 */
+	private void checkReport(String[] replayed) throws IOException
+	{
+		List<String> original = Files.readAllLines(Paths.get(checkFileName));
+		int originalStart = original.lastIndexOf(REPORT_HEADER);
+		int replayedStart = 0;
+		while (replayedStart < replayed.length && !replayed[replayedStart].equals(REPORT_HEADER)) {
+			replayedStart++;
+		}
+		if (originalStart < 0) {
+			System.out.println("CHECK FAILED: " + checkFileName + " has no building state report.");
+			reportMatches = false;
+			return;
+		}
+
+		// The replayed report ends with an empty line from the split.
+		int lines = Math.max(original.size() - originalStart, replayed.length - 1 - replayedStart);
+		for (int i = 0; i < lines; i++) {
+			String expected = originalStart + i < original.size() ? original.get(originalStart + i) : "(end of report)";
+			String actual = replayedStart + i < replayed.length - 1 ? replayed[replayedStart + i] : "(end of report)";
+			if (!expected.equals(actual)) {
+				System.out.println("CHECK FAILED at line " + (originalStart + i + 1) + " of " + checkFileName + ":");
+				System.out.println("  original: " + expected);
+				System.out.println("  replayed: " + actual);
+				reportMatches = false;
+				return;
+			}
+		}
+		System.out.println("CHECK PASSED: the replayed report matches " + checkFileName + ".");
+	}
+}
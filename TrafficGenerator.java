@@ -0,0 +1,352 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * Generates random passenger traffic for one of the standard building traffic profiles.
+ * Passengers arrive one at a time as a Poisson process whose rate changes over the time of day,
+ * and each passenger's trip is picked from the profile's mix of trips:
+ * 		- up-peak: mostly from the lobby (Floor 0) up to the other floors, busiest around 8:45
+ * 		- lunch: down to the lobby around 12:00, back up from the lobby around 13:00
+ * 		- down-peak: mostly from the other floors down to the lobby, a shorter and sharper peak around 17:15
+ * 		- interfloor: between floors at a steady rate, more often to nearby floors than far away ones
+ * Some interfloor trips are mixed into every profile. The day is dayLength ticks long and starts at midnight
+ * at time 0, like the DemandForecaster's, so the peaks come at the same ticks however long the simulation is.
+ * A run much shorter than a day needs a shorter day to see its peak. Arrivals are generated on demand, one ahead of
+ * the clock, so nothing is kept in memory for the whole simulation. The same seed always generates the
+ * same passengers, so runs can be repeated. The random numbers come from a SplitMix64 generator
+ * whose whole state is one long, so a SimulationSnapshot can save and resume the traffic exactly.
+ */
+public class TrafficGenerator implements ArrivalSource
+{
+	public enum Profile { UP_PEAK, LUNCH, DOWN_PEAK, INTERFLOOR }
+
+	private static final int LOBBY = 0;
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	// The share of the peak rate outside the peaks.
+	private static final double OFF_PEAK = 0.1;
+	// When the peaks are, and how spread out (the standard deviation), in hours of the day.
+	private static final double UP_PEAK_HOUR = 8.75;
+	private static final double UP_PEAK_SPREAD = 0.5;
+	private static final double LUNCH_OUT_HOUR = 12;
+	private static final double LUNCH_BACK_HOUR = 13;
+	private static final double LUNCH_SPREAD = 0.4;
+	private static final double DOWN_PEAK_HOUR = 17.25;
+	private static final double DOWN_PEAK_SPREAD = 0.35;
+
+	private Profile profile;
+	private double peakRate;
+	private int floorCount;
+	private int dayLength;
+	private int simulationLength;
+	private long randomState;
+
+	// The next passenger.
+	private double nextArrival;
+	private int nextTime;
+	private int nextFloor;
+	private int nextDestination;
+
+	/**
+	 * Default constructor.
+	 * @param iProfile [in] the traffic profile.
+	 * @param iPeakRate [in] the average number of passengers per tick at the busiest time.
+	 * @param seed [in] the random seed.
+	 * @param iFloorCount [in] the number of building floors. Must be at least 2.
+	 * @param iDayLength [in] the ticks in a day, e.g. DemandForecaster.DEFAULT_DAY_LENGTH.
+	 * @param iSimulationLength [in] the last SimClock time to generate passengers for.
+	 */
+	public TrafficGenerator(Profile iProfile, double iPeakRate, long seed, int iFloorCount, int iDayLength, int iSimulationLength)
+	{
+		this(iProfile, iPeakRate, seed, iFloorCount, iDayLength, iSimulationLength, 0);
+	}
+
+	/**
+	 * Constructor for traffic that starts part way through the simulation, e.g. when resuming a SimulationSnapshot.
+	 * @param iProfile [in] the traffic profile.
+	 * @param iPeakRate [in] the average number of passengers per tick at the busiest time.
+	 * @param seed [in] the random seed.
+	 * @param iFloorCount [in] the number of building floors. Must be at least 2.
+	 * @param iDayLength [in] the ticks in a day, e.g. DemandForecaster.DEFAULT_DAY_LENGTH.
+	 * @param iSimulationLength [in] the last SimClock time to generate passengers for.
+	 * @param startTime [in] the SimClock time of the first possible passenger.
+	 */
+	public TrafficGenerator(Profile iProfile, double iPeakRate, long seed, int iFloorCount, int iDayLength, int iSimulationLength,
+							int startTime)
+	{
+		if (iPeakRate <= 0) {
+			throw new IllegalArgumentException("Traffic rate must be positive");
+		}
+		if (iFloorCount < 2) {
+			throw new IllegalArgumentException("Traffic needs at least 2 floors");
+		}
+		if (iDayLength <= 0) {
+			throw new IllegalArgumentException("Day length must be positive, was " + iDayLength);
+		}
+
+		profile = iProfile;
+		peakRate = iPeakRate;
+		floorCount = iFloorCount;
+		dayLength = iDayLength;
+		simulationLength = iSimulationLength;
+		randomState = seed;
+		nextArrival = startTime;
+		generateNext();
+	}
+
+	/**
+	 * Constructor for readState(). The next passenger is read in instead of generated.
+	 */
+	private TrafficGenerator()
+	{
+	}
+
+	/**
+	 * @param name [in] one of "uppeak", "lunch", "downpeak" or "interfloor".
+	 * @return the matching profile.
+	 */
+	public static Profile profileForName(String name)
+	{
+		switch (name) {
+			case "uppeak":
+				return Profile.UP_PEAK;
+			case "lunch":
+				return Profile.LUNCH;
+			case "downpeak":
+				return Profile.DOWN_PEAK;
+			case "interfloor":
+				return Profile.INTERFLOOR;
+			default:
+				throw new IllegalArgumentException("Unknown traffic profile " + name);
+		}
+	}
+
+	@Override
+	public int peekTime()
+	{
+		return nextTime;
+	}
+
+	@Override
+	public void spawnDueArrivals(PassengerSink sink)
+	{
+		int time = sink.getClock().getTime();
+		while (nextTime <= time) {
+			sink.spawnPassengers(nextFloor, nextDestination, 1);
+			generateNext();
+		}
+	}
+
+	/**
+	 * Writes the settings, the random state and the next passenger for a SimulationSnapshot.
+	 * @param out [in] the snapshot stream.
+	 */
+	@Override
+	public void writeState(DataOutputStream out) throws IOException
+	{
+		out.writeByte(SimulationSnapshot.TRAFFIC_GENERATOR);
+		out.writeInt(profile.ordinal());
+		out.writeDouble(peakRate);
+		out.writeInt(floorCount);
+		out.writeInt(dayLength);
+		out.writeInt(simulationLength);
+		out.writeLong(randomState);
+		out.writeDouble(nextArrival);
+		out.writeInt(nextTime);
+		out.writeInt(nextFloor);
+		out.writeInt(nextDestination);
+	}
+
+	/**
+	 * Reads back a generator written by writeState(), after its source type.
+	 * It generates the same passengers from there on as the one that was written would have.
+	 * @param in [in] the snapshot stream.
+	 * @return the generator.
+	 */
+	public static TrafficGenerator readState(DataInputStream in) throws IOException
+	{
+		TrafficGenerator generator = new TrafficGenerator();
+		generator.profile = Profile.values()[in.readInt()];
+		generator.peakRate = in.readDouble();
+		generator.floorCount = in.readInt();
+		generator.dayLength = in.readInt();
+		generator.simulationLength = in.readInt();
+		generator.randomState = in.readLong();
+		generator.nextArrival = in.readDouble();
+		generator.nextTime = in.readInt();
+		generator.nextFloor = in.readInt();
+		generator.nextDestination = in.readInt();
+		return generator;
+	}
+
+	/**
+	 * Picks the time and trip of the next passenger.
+	 * The rate changes over time, so candidates are drawn at the peak rate and only kept with
+	 * probability rate / peakRate (thinning). That still gives a Poisson process with the changing rate.
+	 */
+	private void generateNext()
+	{
+		while (true) {
+			nextArrival += -Math.log(1 - nextDouble()) / peakRate;
+			if (nextArrival > simulationLength) {
+				nextTime = ArrivalSchedule.NEVER;
+				return;
+			}
+
+			double hour = 24.0 * (nextArrival % dayLength) / dayLength;
+			if (nextDouble() * peakRate < rateAt(hour)) {
+				nextTime = (int) nextArrival;
+				pickTrip(hour);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @param hour [in] the time of day, from 0 to 24.
+	 * @return the average number of passengers per tick.
+	 */
+	private double rateAt(double hour)
+	{
+		double busy;
+		switch (profile) {
+			case UP_PEAK:
+				busy = peak(hour, UP_PEAK_HOUR, UP_PEAK_SPREAD);
+				break;
+			case LUNCH:
+				busy = Math.min(1, peak(hour, LUNCH_OUT_HOUR, LUNCH_SPREAD) + peak(hour, LUNCH_BACK_HOUR, LUNCH_SPREAD));
+				break;
+			case DOWN_PEAK:
+				busy = peak(hour, DOWN_PEAK_HOUR, DOWN_PEAK_SPREAD);
+				break;
+			default:
+				return peakRate;
+		}
+		return peakRate * (OFF_PEAK + (1 - OFF_PEAK) * busy);
+	}
+
+	/**
+	 * @param hour [in] the time of day, from 0 to 24.
+	 * @param peakHour [in] the busiest time of day.
+	 * @param spread [in] the standard deviation of the peak, in hours.
+	 * @return how busy a bell-shaped peak is at hour, from 0 to 1 at peakHour. It wraps around midnight.
+	 */
+	private static double peak(double hour, double peakHour, double spread)
+	{
+		double distance = Math.abs(hour - peakHour);
+		distance = Math.min(distance, 24 - distance) / spread;
+		return Math.exp(-0.5 * distance * distance);
+	}
+
+	/**
+	 * Picks the next passenger's floor and destination from the profile's trip mix:
+	 * the share of trips going up from the lobby, going down to the lobby, and between other floors.
+	 * @param hour [in] the time of day, from 0 to 24.
+	 */
+	private void pickTrip(double hour)
+	{
+		double up;
+		double down;
+		switch (profile) {
+			case UP_PEAK:
+				up = 0.85;
+				down = 0.05;
+				break;
+			case DOWN_PEAK:
+				up = 0.05;
+				down = 0.85;
+				break;
+			case LUNCH:
+				// People go out for lunch first and come back later.
+				double out = peak(hour, LUNCH_OUT_HOUR, LUNCH_SPREAD);
+				double back = peak(hour, LUNCH_BACK_HOUR, LUNCH_SPREAD);
+				double returning = out + back > 0 ? back / (out + back) : 0.5;
+				up = 0.1 + 0.7 * returning;
+				down = 0.8 - 0.7 * returning;
+				break;
+			default:
+				up = 0;
+				down = 0;
+				break;
+		}
+
+		double trip = nextDouble();
+		if (trip < up) {
+			nextFloor = LOBBY;
+			nextDestination = 1 + nextInt(floorCount - 1);
+		}
+		else if (trip < up + down) {
+			nextFloor = 1 + nextInt(floorCount - 1);
+			nextDestination = LOBBY;
+		}
+		else {
+			pickInterfloorTrip();
+		}
+	}
+
+	/**
+	 * Picks an interfloor trip from any floor. Every floor is as likely to be the start, but a floor
+	 * twice as far away is only half as likely to be the destination, since most interfloor trips
+	 * are to neighbouring departments.
+	 */
+	private void pickInterfloorTrip()
+	{
+		nextFloor = nextInt(floorCount);
+
+		double total = 0;
+		for (int i = 0; i < floorCount; i++) {
+			if (i != nextFloor) {
+				total += 1.0 / Math.abs(i - nextFloor);
+			}
+		}
+
+		double pick = nextDouble() * total;
+		for (int i = 0; i < floorCount; i++) {
+			if (i == nextFloor) {
+				continue;
+			}
+			// Ends on the last floor if rounding leaves a bit of pick over.
+			nextDestination = i;
+			pick -= 1.0 / Math.abs(i - nextFloor);
+			if (pick < 0) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * @return the next 64 random bits of the SplitMix64 sequence.
+	 */
+	private long nextLong()
+	{
+		randomState += GOLDEN_GAMMA;
+		long z = randomState;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * @return a random number from 0 (inclusive) to 1 (exclusive).
+	 */
+	private double nextDouble()
+	{
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * @param bound [in] the number of possible values. Must be positive.
+	 * @return a random number from 0 to bound - 1.
+	 */
+	private int nextInt(int bound)
+	{
+		// Scale the top 32 bits into the range. The bias is far too small to matter for traffic.
+		return (int) (((nextLong() >>> 32) * bound) >>> 32);
+	}
+}
@@ -0,0 +1,316 @@
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * How many ticks elevators take to travel between floors and to stop at a floor.
+ * Travel times for every floor distance are worked out once when the model is made and kept
+ * in a table, so the Elevator and the dispatch strategies only ever do an array read.
+ * There are two models:
+ * 		- classic: 5 ticks per floor and 10 ticks per stop, however many passengers get on or off.
+ * 		  This is what the simulation has always used and stays the default.
+ * 		- kinematic: the car speeds up and slows down with limited acceleration and jerk (an S-curve),
+ * 		  so short trips never reach full speed, and a stop takes the door open and close times plus
+ * 		  a boarding time for every passenger getting on or off.
+ * A kinematic model is read from a properties file, e.g.
+ * 		# Metres between floors.
+ * 		floorHeight=3.5
+ * 		# Top speed, m/s.
+ * 		speed=2.5
+ * 		# Top acceleration, m/s^2.
+ * 		acceleration=1.0
+ * 		# Top rate of change of acceleration, m/s^3.
+ * 		jerk=1.5
+ * 		# Seconds the doors take to open and to close.
+ * 		doorOpenTime=2.5
+ * 		doorCloseTime=3.0
+ * 		# Seconds per passenger getting on or off.
+ * 		boardingTime=1.0
+ * 		# How many seconds one SimClock tick stands for.
+ * 		secondsPerTick=1.0
+ * Comments have to go on their own lines, since a properties file takes the rest of a line as the value.
+ * Missing keys keep the values above.
+ * An elevator bank that only stops at some of the building's floors, e.g. an express shuttle between
+ * sky lobbies, numbers its floors 0 to n - 1 and uses forFloors() to time them by the building floors they are on.
+ */
+public class TravelTimeModel
+{
+	private static final int CLASSIC_TRAVERSAL_TICKS = 5;
+	private static final int CLASSIC_LOAD_UNLOAD_TICKS = 10;
+
+	private int[] travelTicks;  // Indexed by the number of floors travelled.
+	private int[] floorPositions;  // The building floor of every floor the elevators stop at, null if they stop at all of them.
+	private double doorSeconds;
+	private double boardingSeconds;
+	private double secondsPerTick;
+
+	/**
+	 * @param iTravelTicks [in] the travel ticks for every floor distance.
+	 * @param iDoorSeconds [in] the door open plus close time of a stop.
+	 * @param iBoardingSeconds [in] the time per passenger getting on or off.
+	 * @param iSecondsPerTick [in] the seconds one SimClock tick stands for.
+	 */
+	private TravelTimeModel(int[] iTravelTicks, double iDoorSeconds, double iBoardingSeconds, double iSecondsPerTick)
+	{
+		travelTicks = iTravelTicks;
+		doorSeconds = iDoorSeconds;
+		boardingSeconds = iBoardingSeconds;
+		secondsPerTick = iSecondsPerTick;
+	}
+
+	/**
+	 * @param floorCount [in] the number of building floors.
+	 * @return the classic model of 5 ticks per floor and 10 ticks per stop.
+	 */
+	public static TravelTimeModel classic(int floorCount)
+	{
+		int[] ticks = new int[floorCount];
+		for (int floors = 0; floors < floorCount; floors++) {
+			ticks[floors] = floors * CLASSIC_TRAVERSAL_TICKS;
+		}
+
+		return new TravelTimeModel(ticks, CLASSIC_LOAD_UNLOAD_TICKS, 0, 1);
+	}
+
+	/**
+	 * Works out the travel time table of a kinematic model.
+	 * @param floorCount [in] the number of building floors.
+	 * @param floorHeight [in] metres between floors.
+	 * @param speed [in] top speed in m/s.
+	 * @param acceleration [in] top acceleration in m/s^2.
+	 * @param jerk [in] top jerk in m/s^3.
+	 * @param doorOpenTime [in] seconds to open the doors.
+	 * @param doorCloseTime [in] seconds to close the doors.
+	 * @param boardingTime [in] seconds per passenger getting on or off.
+	 * @param secondsPerTick [in] the seconds one SimClock tick stands for.
+	 * @return the model.
+	 */
+	public static TravelTimeModel kinematic(int floorCount, double floorHeight, double speed, double acceleration, double jerk,
+											double doorOpenTime, double doorCloseTime, double boardingTime, double secondsPerTick)
+	{
+		int[] ticks = new int[floorCount];
+		for (int floors = 1; floors < floorCount; floors++) {
+			ticks[floors] = toTicks(travelSeconds(floors * floorHeight, speed, acceleration, jerk), secondsPerTick);
+		}
+
+		return new TravelTimeModel(ticks, doorOpenTime + doorCloseTime, boardingTime, secondsPerTick);
+	}
+
+	/**
+	 * The same model for an elevator bank that only stops at some of the building floors.
+	 * The table is shared, not copied.
+	 * @param buildingFloors [in] the building floor of every floor of the bank, from the bottom up.
+	 * @return the model, timing bank floor i as buildingFloors[i].
+	 */
+	public TravelTimeModel forFloors(int[] buildingFloors)
+	{
+		TravelTimeModel model = new TravelTimeModel(travelTicks, doorSeconds, boardingSeconds, secondsPerTick);
+		model.floorPositions = buildingFloors;
+		return model;
+	}
+
+	/**
+	 * Reads and checks a kinematic model file.
+	 * @param fileName [in] path of the properties file.
+	 * @param floorCount [in] the number of building floors.
+	 * @return the model.
+	 * @throws ConfigException if the file can't be read or has a mistake in it.
+	 */
+	public static TravelTimeModel load(String fileName, int floorCount)
+	{
+		Properties properties = new Properties();
+		try (FileReader reader = new FileReader(fileName)) {
+			properties.load(reader);
+		}
+		catch (IOException e) {
+			throw new ConfigException("Cannot read kinematics file " + fileName + ": " + e.getMessage(), e);
+		}
+
+		return kinematic(floorCount,
+						 parsePositive(fileName, properties, "floorHeight", 3.5),
+						 parsePositive(fileName, properties, "speed", 2.5),
+						 parsePositive(fileName, properties, "acceleration", 1.0),
+						 parsePositive(fileName, properties, "jerk", 1.5),
+						 parseNonNegative(fileName, properties, "doorOpenTime", 2.5),
+						 parseNonNegative(fileName, properties, "doorCloseTime", 3.0),
+						 parseNonNegative(fileName, properties, "boardingTime", 1.0),
+						 parsePositive(fileName, properties, "secondsPerTick", 1.0));
+	}
+
+	/**
+	 * A single array read.
+	 * @param fromFloor [in] the floor the elevator leaves.
+	 * @param toFloor [in] the floor the elevator stops at.
+	 * @return the ticks from leaving fromFloor to stopping at toFloor, without the stop itself.
+	 */
+	public int getTravelTicks(int fromFloor, int toFloor)
+	{
+		return travelTicks[Math.abs(position(toFloor) - position(fromFloor))];
+	}
+
+	/**
+	 * @param passengers [in] the number of passengers getting on or off.
+	 * @return the ticks a stop takes, from the doors opening to the doors closing.
+	 */
+	public int getDwellTicks(int passengers)
+	{
+		return toTicks(doorSeconds + passengers * boardingSeconds, secondsPerTick);
+	}
+
+	/**
+	 * @param fromFloor [in] the floor the elevator left.
+	 * @param direction [in] 1 if it is going up, -1 if it is going down.
+	 * @param elapsedTicks [in] the ticks since it left.
+	 * @return how many floors the elevator has got to by now, i.e. the furthest floor it could have stopped at.
+	 */
+	public int getFloorsPassed(int fromFloor, int direction, int elapsedTicks)
+	{
+		// The table only goes up, so binary search it.
+		int low = 0;
+		int high = travelTicks.length - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (travelTicks[middle] <= elapsedTicks) {
+				low = middle;
+			}
+			else {
+				high = middle - 1;
+			}
+		}
+		if (floorPositions == null) {
+			return low;
+		}
+
+		// Count the bank floors within that many building floors.
+		int passed = 0;
+		int floor = fromFloor + direction;
+		while (floor >= 0 && floor < floorPositions.length && Math.abs(floorPositions[floor] - floorPositions[fromFloor]) <= low) {
+			passed++;
+			floor += direction;
+		}
+		return passed;
+	}
+
+	/**
+	 * @param floor [in] a floor the elevators stop at.
+	 * @return the building floor it is on.
+	 */
+	private int position(int floor)
+	{
+		return floorPositions == null ? floor : floorPositions[floor];
+	}
+
+	/**
+	 * The shortest time to travel a distance from standstill to standstill. The car speeds up to
+	 * top speed, cruises and slows down again the same way. If the distance is too short to reach top speed,
+	 * it only speeds up to the highest speed it can still stop from in time.
+	 * @param distance [in] metres to travel.
+	 * @param speed [in] top speed in m/s.
+	 * @param acceleration [in] top acceleration in m/s^2.
+	 * @param jerk [in] top jerk in m/s^3.
+	 * @return the travel time in seconds.
+	 */
+	private static double travelSeconds(double distance, double speed, double acceleration, double jerk)
+	{
+		if (2 * rampDistance(speed, acceleration, jerk) <= distance) {
+			return 2 * rampSeconds(speed, acceleration, jerk) + (distance - 2 * rampDistance(speed, acceleration, jerk)) / speed;
+		}
+
+		// The ramp distance goes up with the peak speed, so bisect for the peak speed that just fits.
+		double low = 0;
+		double high = speed;
+		for (int i = 0; i < 64; i++) {
+			double peak = (low + high) / 2;
+			if (2 * rampDistance(peak, acceleration, jerk) <= distance) {
+				low = peak;
+			}
+			else {
+				high = peak;
+			}
+		}
+
+		return 2 * rampSeconds(low, acceleration, jerk);
+	}
+
+	/**
+	 * @param peakSpeed [in] the speed to reach, in m/s.
+	 * @param acceleration [in] top acceleration in m/s^2.
+	 * @param jerk [in] top jerk in m/s^3.
+	 * @return the seconds to get from standstill to peakSpeed. The acceleration ramps up and down at
+	 * 		   the top jerk, holding the top acceleration in between if there is time.
+	 */
+	private static double rampSeconds(double peakSpeed, double acceleration, double jerk)
+	{
+		if (peakSpeed * jerk >= acceleration * acceleration) {
+			return peakSpeed / acceleration + acceleration / jerk;
+		}
+
+		// Top acceleration is never reached.
+		return 2 * Math.sqrt(peakSpeed / jerk);
+	}
+
+	/**
+	 * @return the metres covered getting from standstill to peakSpeed. The speed curve is symmetric,
+	 * 		   so the average speed is half of peakSpeed.
+	 */
+	private static double rampDistance(double peakSpeed, double acceleration, double jerk)
+	{
+		return peakSpeed / 2 * rampSeconds(peakSpeed, acceleration, jerk);
+	}
+
+	/**
+	 * @param seconds [in] a time in seconds.
+	 * @param secondsPerTick [in] the seconds one SimClock tick stands for.
+	 * @return the whole ticks it takes.
+	 */
+	private static int toTicks(double seconds, double secondsPerTick)
+	{
+		// Leave out floating point noise so e.g. exactly 5 seconds is 5 ticks.
+		return (int) Math.ceil(seconds / secondsPerTick - 1e-9);
+	}
+
+	/**
+	 * Like parseNonNegative(), for the settings that can't be 0 either.
+	 */
+	private static double parsePositive(String fileName, Properties properties, String key, double defaultValue)
+	{
+		double value = parseNonNegative(fileName, properties, key, defaultValue);
+		if (value == 0) {
+			throw new ConfigException(fileName + ": " + key + " must be more than 0", null);
+		}
+		return value;
+	}
+
+	/**
+	 * @param fileName [in] the kinematics file, for the error message.
+	 * @param properties [in] the properties of the file.
+	 * @param key [in] the property to read.
+	 * @param defaultValue [in] the value if the property is missing.
+	 * @return the value of the property.
+	 * @throws ConfigException if the value is not a number or is less than 0.
+	 */
+	private static double parseNonNegative(String fileName, Properties properties, String key, double defaultValue)
+	{
+		String text = properties.getProperty(key);
+		if (text == null) {
+			return defaultValue;
+		}
+
+		double value;
+		try {
+			value = Double.parseDouble(text.trim());
+		}
+		catch (NumberFormatException e) {
+			throw new ConfigException(fileName + ": " + key + " \"" + text.trim() + "\" is not a number", e);
+		}
+		if (!(value >= 0) || Double.isInfinite(value)) {
+			throw new ConfigException(fileName + ": " + key + " must be 0 or more", null);
+		}
+		return value;
+	}
+}
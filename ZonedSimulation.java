@@ -0,0 +1,382 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * Runs a zoned building, whose elevators are split into the ElevatorBanks of a BankLayout, e.g. low, mid and
+ * high rise banks and express shuttles to the sky lobbies between them. Each bank has its own building manager
+ * and runs as a discrete-event simulation on its own thread.
+ *
+ * The banks only depend on each other through the passengers changing banks, and those take the layout's
+ * transfer time to walk across the transfer floor. So the banks can safely run that many ticks ahead on their
+ * own: the simulation runs in windows of the transfer time. Before a window, the main thread routes the
+ * passengers that spawn during it to their first bank. Then every bank runs to the end of the window in parallel.
+ * After it, the passengers that got off to change banks are sent on to their next bank, turning up there a transfer
+ * time later, which is never before the next window. The banks wait for each other once per window, not once per tick.
+ *
+ * Every bank spawns, boards and drops off passengers in the same order on every run, so zoned runs can be repeated.
+ * Wait and journey times are per ride: a passenger that changes banks is counted once by every bank they ride.
+ * Elevator IDs and floors are per bank, so the EventLog only prints the summary for a zoned run.
+ */
+public class ZonedSimulation implements PassengerSink
+{
+	// Data Members
+	private BankLayout layout;
+	private ElevatorBank[] banks;
+	private SimClock clock;
+	private String configFileName;
+	private String kinematicsFileName;
+	private TrafficGenerator.Profile trafficProfile;
+	private double trafficRate;
+	private long trafficSeed;
+	private int dayLength = DemandForecaster.DEFAULT_DAY_LENGTH;
+	private int simulationLength;
+	private ArrayList<ArrivalSource> arrivals;
+	private long passengersSpawned;
+	private long passengersHandedOff;
+
+	/**
+	 * Constructor that creates the banks of a layout.
+	 * @param iLayout [in] how the elevators are split into banks.
+	 */
+	public ZonedSimulation(BankLayout iLayout)
+	{
+		layout = iLayout;
+		clock = new SimClock();
+		configFileName = "ElevatorConfig.txt";
+		banks = new ElevatorBank[layout.getBankCount()];
+		for (int i = 0; i < banks.length; i++) {
+			banks[i] = new ElevatorBank(layout.getName(i), layout.getFloors(i), layout.getFloorCount(), layout.getElevatorCount(i));
+		}
+	}
+
+	/**
+	 * Sets the config file read by start(). "ElevatorConfig.txt" by default.
+	 * The arrivals in it are in building floors.
+	 * @param fileName [in] path of the config file.
+	 */
+	public void setConfigFile(String fileName)
+	{
+		configFileName = fileName;
+	}
+
+	/**
+	 * Sets the TravelTimeModel properties file read by start(), for every bank.
+	 * @param fileName [in] path of the kinematics file, null for the classic model.
+	 */
+	public void setKinematicsFile(String fileName)
+	{
+		kinematicsFileName = fileName;
+	}
+
+	/**
+	 * Adds random passenger traffic on top of the arrivals in the config file.
+	 * @param profile [in] the traffic profile, null for no random traffic.
+	 * @param rate [in] the average number of passengers per tick at the busiest time.
+	 * @param seed [in] the random seed. The same seed gives the same passengers.
+	 */
+	public void setTraffic(TrafficGenerator.Profile profile, double rate, long seed)
+	{
+		trafficProfile = profile;
+		trafficRate = rate;
+		trafficSeed = seed;
+	}
+
+	/**
+	 * Selects how idle elevators are sent to floors. Every bank gets its own strategy.
+	 * @param name [in] one of "lowest", "nearest", "eta" or "destination".
+	 */
+	public void setDispatchStrategy(String name)
+	{
+		for (ElevatorBank bank : banks) {
+			bank.getBuildingManager().setDispatchStrategy(DispatchStrategy.forName(name));
+		}
+	}
+
+	/**
+	 * Selects where idle elevators wait when there is no floor to send them to. Every bank gets its own policy.
+	 * @param name [in] "none" or "demand".
+	 */
+	public void setParkingPolicy(String name)
+	{
+		for (ElevatorBank bank : banks) {
+			bank.getBuildingManager().setParkingPolicy(ParkingPolicy.forName(name));
+		}
+	}
+
+	/**
+	 * Sets how long a day is for the random traffic's profile and the DemandForecaster of every bank.
+	 * @param iDayLength [in] the ticks the traffic takes to repeat itself.
+	 */
+	public void setDayLength(int iDayLength)
+	{
+		for (ElevatorBank bank : banks) {
+			bank.getBuildingManager().setDayLength(iDayLength);
+		}
+		dayLength = iDayLength;
+	}
+
+	/**
+	 * Sets the capacity of every elevator.
+	 * @param capacity [in] the most passengers an elevator can carry.
+	 */
+	public void setCapacity(int capacity)
+	{
+		for (ElevatorBank bank : banks) {
+			for (Elevator e : bank.getElevators()) {
+				e.setCapacity(capacity);
+			}
+		}
+	}
+
+	/**
+	 * Turns SCAN/LOOK collective control on or off for every elevator.
+	 * @param collectiveControl [in] true for elevators to pick up passengers en route.
+	 */
+	public void setCollectiveControl(boolean collectiveControl)
+	{
+		for (ElevatorBank bank : banks) {
+			for (Elevator e : bank.getElevators()) {
+				e.setCollectiveControl(collectiveControl);
+			}
+		}
+	}
+
+	/**
+	 * @return the clock the passengers are spawned by. The banks run ahead of it during a window.
+	 */
+	@Override
+	public SimClock getClock()
+	{
+		return clock;
+	}
+
+	/**
+	 * Routes new passengers to the first bank of their trip. Only called by the arrival sources, between windows.
+	 */
+	@Override
+	public void spawnPassengers(int floor, int goingToFloor, int numPassengers)
+	{
+		passengersSpawned += numPassengers;
+		route(clock.getTime(), floor, goingToFloor, numPassengers);
+	}
+
+	/**
+	 * Runs the simulation, one thread per bank.
+	 * @throws ConfigException if the config file or the kinematics file can't be read or has a mistake in it.
+	 */
+	public void start()
+	{
+		if (kinematicsFileName != null) {
+			TravelTimeModel model = TravelTimeModel.load(kinematicsFileName, layout.getFloorCount());
+			for (ElevatorBank bank : banks) {
+				bank.getBuildingManager().setTravelTimeModel(model.forFloors(bank.getFloors()));
+			}
+		}
+		SimulationConfig config = SimulationConfig.load(configFileName, layout.getFloorCount());
+		simulationLength = config.getSimulationLength();
+		arrivals = new ArrayList<ArrivalSource>();
+		arrivals.add(new ArrivalQueue(config.getArrivals()));
+		if (trafficProfile != null) {
+			arrivals.add(new TrafficGenerator(trafficProfile, trafficRate, trafficSeed, layout.getFloorCount(), dayLength, simulationLength));
+		}
+
+		EventLog.reset();
+		// The level is only lowered for this run, so whatever runs next in the JVM logs as much as it asked for.
+		EventLog.Level level = EventLog.getLevel();
+		if (level == EventLog.Level.FULL) {
+			EventLog.setLevel(EventLog.Level.SUMMARY);
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(banks.length);
+		try {
+			int time = 0;
+			while (time <= simulationLength) {
+				int windowEnd = Math.min(time + layout.getTransferTicks() - 1, simulationLength);
+				spawnArrivals(windowEnd);
+				runBanks(pool, windowEnd);
+				handOff();
+				time = windowEnd + 1;
+			}
+		}
+		finally {
+			pool.shutdown();
+			EventLog.setLevel(level);
+		}
+
+		for (ElevatorBank bank : banks) {
+			bank.getBuildingManager().publishView();
+		}
+	}
+
+	/**
+	 * @return the banks of the building.
+	 */
+	public ElevatorBank[] getBanks()
+	{
+		return banks;
+	}
+
+	/**
+	 * @return the number of passengers that spawned in the building, not counting bank changes.
+	 */
+	public long getPassengersSpawned()
+	{
+		return passengersSpawned;
+	}
+
+	/**
+	 * @return the number of times a passenger changed banks.
+	 */
+	public long getPassengersHandedOff()
+	{
+		return passengersHandedOff;
+	}
+
+	/**
+	 * Prints the state of every bank and the passenger times, in building floors. Only called between windows.
+	 * Prints nothing when the EventLog is off.
+	 */
+	public void printBuildingState()
+	{
+		if (EventLog.getLevel() == EventLog.Level.OFF) {
+			return;
+		}
+		EventLog.flush();
+
+		System.out.println();
+		for (ElevatorBank bank : banks) {
+			BuildingView view = bank.getBuildingManager().publishView();
+			PassengerMetrics metrics = bank.getBuildingManager().getPassengerMetrics();
+			int[] floors = bank.getFloors();
+
+			System.out.println("---------------BANK " + bank.getName() + "---------------");
+			for (int i = 0; i < floors.length; i++) {
+				System.out.println("Floor " + floors[i] + (layout.isTransferFloor(floors[i]) ? " (transfer floor)" : ""));
+				System.out.println("Total Number of Passengers Requesting Elevator Access: " + view.getTotalDestinationRequests(i));
+				System.out.println("Total Number of Passengers that Exited On This Floor: " + view.getArrivedPassengers(i));
+				System.out.println("Current Number of Passengers Waiting for Elevator On This Floor: " + view.getWaitingPassengers(i));
+				System.out.println("Passenger Wait Time p50/p90/p99/max: " + metrics.getWaitAtFloor(i).toPercentileString());
+				System.out.println();
+			}
+			for (int i = 0; i < view.getElevatorCount(); i++) {
+				System.out.println("Elevator " + bank.getName() + " #" + i);
+				System.out.println("Total Number of Passengers that Entered Elevator: " + view.getTotalLoadedPassengers(i));
+				System.out.println("Current Number of Passengers in Elevator: " + view.getNumPassengers(i));
+				System.out.println();
+			}
+			LatencyHistogram wait = metrics.getTotalWait();
+			LatencyHistogram journey = metrics.getTotalJourney();
+			System.out.println("Passengers that Boarded: " + wait.getTotalCount());
+			System.out.println("Wait Time p50/p90/p99/max: " + wait.toPercentileString());
+			System.out.println("Passengers that Arrived: " + journey.getTotalCount());
+			System.out.println("Journey Time p50/p90/p99/max: " + journey.toPercentileString());
+			System.out.println();
+		}
+
+		System.out.println("---------------BANK CHANGES---------------");
+		int walking = 0;
+		for (ElevatorBank bank : banks) {
+			walking += bank.getIncomingPassengers();
+		}
+		System.out.println("Passengers that Spawned: " + passengersSpawned);
+		System.out.println("Bank Changes: " + passengersHandedOff);
+		System.out.println("Passengers Still Changing Banks: " + walking);
+	}
+
+	/**
+	 * Spawns the passengers of the arrival sources up to the end of a window, jumping the clock from one
+	 * spawn time to the next.
+	 * @param windowEnd [in] the last SimClock time of the window.
+	 */
+	private void spawnArrivals(int windowEnd)
+	{
+		int next = nextArrivalTime();
+		while (next <= windowEnd) {
+			clock.advanceTo(next);
+			for (ArrivalSource source : arrivals) {
+				source.spawnDueArrivals(this);
+			}
+			next = nextArrivalTime();
+		}
+	}
+
+	/**
+	 * @return the earliest time any arrival source spawns passengers. ArrivalSchedule.NEVER if there are none left.
+	 */
+	private int nextArrivalTime()
+	{
+		int next = ArrivalSchedule.NEVER;
+		for (ArrivalSource source : arrivals) {
+			next = Math.min(next, source.peekTime());
+		}
+		return next;
+	}
+
+	/**
+	 * Runs every bank to the end of a window on the pool and waits until all of them are done.
+	 * @param pool [in] one thread per bank.
+	 * @param windowEnd [in] the last SimClock time of the window.
+	 */
+	private void runBanks(ExecutorService pool, int windowEnd)
+	{
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (ElevatorBank bank : banks) {
+			tasks.add(() -> {
+				bank.run(windowEnd);
+				return null;
+			});
+		}
+
+		try {
+			for (Future<Void> result : pool.invokeAll(tasks)) {
+				result.get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while the banks were running", e);
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException("A bank failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Sends the passengers that got off to change banks during the window on to their next bank,
+	 * in bank order, so every run sends them the same way.
+	 */
+	private void handOff()
+	{
+		for (ElevatorBank bank : banks) {
+			for (int i = 0; i < bank.getHandoffCount(); i++) {
+				passengersHandedOff += bank.getHandoffPassengers(i);
+				route(bank.getHandoffTime(i) + layout.getTransferTicks(), bank.getHandoffFloor(i),
+					  bank.getHandoffDestination(i), bank.getHandoffPassengers(i));
+			}
+			bank.clearHandoffs();
+		}
+	}
+
+	/**
+	 * Sends passengers to the next bank of their trip.
+	 * @param time [in] the SimClock time they turn up at the bank.
+	 * @param floor [in] the building floor they are on.
+	 * @param destination [in] the building floor they are going to.
+	 * @param count [in] the number of passengers.
+	 */
+	private void route(int time, int floor, int destination, int count)
+	{
+		banks[layout.getNextBank(floor, destination)].addPassengers(time, floor, layout.getNextFloor(floor, destination),
+																	 destination, count);
+	}
+}
@@ -0,0 +1,67 @@
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * The default package side of bench.SimulatorBridge. Calls straight into the simulator.
+ */
+public class SimulatorBridgeImpl implements bench.SimulatorBridge
+{
+	private BuildingManager manager;
+	
+	/**
+	 * Default constructor. Turns the event log off so the benchmarks don't measure the console.
+	 */
+	public SimulatorBridgeImpl()
+	{
+		EventLog.setLevel(EventLog.Level.OFF);
+	}
+	
+	@Override
+	public void createBuilding(int floorCount, int elevatorCount)
+	{
+		manager = new BuildingManager(floorCount, elevatorCount);
+		// Claiming a floor reserves passengers for the elevator, so every ID needs a registered elevator.
+		for (int i = 0; i < elevatorCount; i++) {
+			new Elevator(i, manager);
+		}
+	}
+	
+	@Override
+	public void spawnPassengers(int floor, int goingToFloor, int numPassengers)
+	{
+		manager.spawnPassengers(floor, goingToFloor, numPassengers);
+	}
+	
+	@Override
+	public int clearPassengerRequests(int floor, int goingToFloor)
+	{
+		return manager.clearPassengerRequests(floor, goingToFloor);
+	}
+	
+	@Override
+	public int requestFloorAccess(int elevatorID)
+	{
+		return manager.requestFloorAccess(elevatorID);
+	}
+	
+	@Override
+	public void releaseFloor(int elevatorID, int floor)
+	{
+		manager.releaseReservations(elevatorID, floor);
+		manager.clearApproachingElevator(floor);
+	}
+	
+	@Override
+	public long runSimulation(String configFile, int floorCount, int elevatorCount, boolean discreteEvent)
+	{
+		ElevatorSimulation es = new ElevatorSimulation(floorCount, elevatorCount);
+		es.setConfigFile(configFile);
+		es.setDiscreteEvent(discreteEvent);
+		es.setSleepEnabled(false);
+		es.start();
+		
+		return es.getPassengerMetrics().getTotalJourney().getTotalCount();
+	}
+}
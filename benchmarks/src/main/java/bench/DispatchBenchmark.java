@@ -0,0 +1,109 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * Measures BuildingManager.requestFloorAccess(), alone and with several elevators asking at once.
+ * Each operation claims a floor and releases it and its reservations again, so the demand never runs out
+ * and every operation sees the same building.
+ * 		- "all" demand has passengers waiting on every floor
+ * 		- "top" demand only has passengers on the top floor, so every request scans the whole building
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark
+{
+	private static final int ELEVATOR_COUNT = 64;
+	
+	@Param({"5", "60", "200"})
+	public int floors;
+	
+	@Param({"all", "top"})
+	public String demand;
+	
+	private SimulatorBridge building;
+	
+	/**
+	 * Each benchmark thread acts as its own elevator.
+	 */
+	@State(Scope.Thread)
+	public static class Car
+	{
+		private static final AtomicInteger nextID = new AtomicInteger();
+		
+		public int elevatorID;
+		
+		@Setup
+		public void setUp()
+		{
+			elevatorID = nextID.getAndIncrement() % ELEVATOR_COUNT;
+		}
+	}
+	
+	@Setup
+	public void setUp()
+	{
+		building = SimulatorBridge.create();
+		building.createBuilding(floors, ELEVATOR_COUNT);
+		
+		if (demand.equals("all")) {
+			for (int i = 0; i < floors; i++) {
+				building.spawnPassengers(i, (i + 1) % floors, 1);
+			}
+		}
+		else {
+			building.spawnPassengers(floors - 1, 0, 1);
+		}
+	}
+	
+	@Benchmark
+	@Threads(1)
+	public int requestFloorAccess(Car car)
+	{
+		return claimAndRelease(car);
+	}
+	
+	@Benchmark
+	@Threads(4)
+	public int requestFloorAccessContended(Car car)
+	{
+		return claimAndRelease(car);
+	}
+	
+	/**
+	 * @param car [in] the requesting elevator.
+	 * @return the claimed floor, -1 if every floor was claimed by other threads.
+	 */
+	private int claimAndRelease(Car car)
+	{
+		int floor = building.requestFloorAccess(car.elevatorID);
+		if (floor != -1) {
+			building.releaseFloor(car.elevatorID, floor);
+		}
+		
+		return floor;
+	}
+}
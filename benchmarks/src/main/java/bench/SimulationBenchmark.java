@@ -0,0 +1,154 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * Runs whole simulations and reports simulated ticks per second, for several building sizes
+ * ("floors x elevators") and traffic profiles:
+ * 		- interfloor: every floor sends passengers to random floors
+ * 		- uppeak: most passengers spawn in the lobby and go up
+ * 		- downpeak: most passengers go down to the lobby
+ * The config file for each run is generated from a fixed seed so runs are repeatable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulationBenchmark
+{
+	private static final int SIMULATION_LENGTH = 20000;
+	
+	@Param({"5x5", "60x24", "200x48"})
+	public String building;
+	
+	@Param({"interfloor", "uppeak", "downpeak"})
+	public String profile;
+	
+	private SimulatorBridge simulator;
+	private File configFile;
+	private int floorCount;
+	private int elevatorCount;
+	
+	@Setup
+	public void setUp() throws IOException
+	{
+		String[] size = building.split("x");
+		floorCount = Integer.parseInt(size[0]);
+		elevatorCount = Integer.parseInt(size[1]);
+		
+		simulator = SimulatorBridge.create();
+		configFile = File.createTempFile("ElevatorConfig-" + profile + "-" + building + "-", ".txt");
+		writeConfig(configFile);
+	}
+	
+	@TearDown
+	public void tearDown()
+	{
+		configFile.delete();
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(SIMULATION_LENGTH)
+	public long discreteEvent()
+	{
+		return simulator.runSimulation(configFile.getPath(), floorCount, elevatorCount, true);
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(SIMULATION_LENGTH)
+	public long threaded()
+	{
+		return simulator.runSimulation(configFile.getPath(), floorCount, elevatorCount, false);
+	}
+	
+	/**
+	 * Writes a config file for the traffic profile: the simulation length, a simulated second
+	 * rate of 0, then one line of "count destination period" arrivals per floor.
+	 * @param file [in] the file to write.
+	 * @throws IOException if the file can't be written.
+	 */
+	private void writeConfig(File file) throws IOException
+	{
+		Random random = new Random(42);
+		
+		try (PrintWriter out = new PrintWriter(file)) {
+			out.println(SIMULATION_LENGTH);
+			out.println(0);
+			
+			for (int floor = 0; floor < floorCount; floor++) {
+				StringBuilder line = new StringBuilder();
+				
+				if (profile.equals("interfloor")) {
+					appendArrival(line, 1 + random.nextInt(3), randomOtherFloor(random, floor), 20 + random.nextInt(40));
+					appendArrival(line, 1 + random.nextInt(3), randomOtherFloor(random, floor), 20 + random.nextInt(40));
+				}
+				else if (profile.equals("uppeak")) {
+					if (floor == 0) {
+						for (int destination = 1; destination < floorCount; destination++) {
+							appendArrival(line, 1 + random.nextInt(3), destination, 10 + random.nextInt(20));
+						}
+					}
+					else {
+						appendArrival(line, 1, 0, 200);
+					}
+				}
+				else {
+					if (floor == 0) {
+						appendArrival(line, 1, randomOtherFloor(random, floor), 200);
+					}
+					else {
+						appendArrival(line, 1 + random.nextInt(3), 0, 10 + random.nextInt(20));
+					}
+				}
+				
+				out.println(line);
+			}
+		}
+	}
+	
+	/**
+	 * @param random [in] the seeded random.
+	 * @param floor [in] the floor to avoid.
+	 * @return a random floor other than floor.
+	 */
+	private int randomOtherFloor(Random random, int floor)
+	{
+		return (floor + 1 + random.nextInt(floorCount - 1)) % floorCount;
+	}
+	
+	/**
+	 * Appends one "count destination period" arrival to a config line.
+	 */
+	private static void appendArrival(StringBuilder line, int count, int destination, int period)
+	{
+		if (line.length() > 0) {
+			line.append(';');
+		}
+		line.append(count).append(' ').append(destination).append(' ').append(period);
+	}
+}
@@ -0,0 +1,67 @@
+package bench;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * The simulator classes are in the default package, which JMH benchmarks can't use
+ * because they have to be in a named package. The benchmarks go through this interface
+ * instead. Its implementation, SimulatorBridgeImpl, is in the default package and calls
+ * the simulator directly, so the only reflection is creating it once per benchmark.
+ */
+public interface SimulatorBridge
+{
+	/**
+	 * @return a new bridge with printing turned off.
+	 */
+	static SimulatorBridge create()
+	{
+		try {
+			return (SimulatorBridge) Class.forName("SimulatorBridgeImpl").getDeclaredConstructor().newInstance();
+		}
+		catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Cannot create SimulatorBridgeImpl", e);
+		}
+	}
+	
+	/**
+	 * Creates a BuildingManager and its Elevators for the other building methods to use.
+	 * The elevators are only registered, they never run.
+	 * @param floorCount [in] the number of building floors.
+	 * @param elevatorCount [in] the number of elevators.
+	 */
+	void createBuilding(int floorCount, int elevatorCount);
+	
+	/**
+	 * Calls BuildingManager.spawnPassengers().
+	 */
+	void spawnPassengers(int floor, int goingToFloor, int numPassengers);
+	
+	/**
+	 * Calls BuildingManager.clearPassengerRequests().
+	 */
+	int clearPassengerRequests(int floor, int goingToFloor);
+	
+	/**
+	 * Calls BuildingManager.requestFloorAccess().
+	 */
+	int requestFloorAccess(int elevatorID);
+	
+	/**
+	 * Undoes a claim from requestFloorAccess(): calls BuildingManager.releaseReservations() and
+	 * BuildingManager.clearApproachingElevator(), so the passengers are waiting and unreserved again.
+	 */
+	void releaseFloor(int elevatorID, int floor);
+	
+	/**
+	 * Runs a whole simulation without sleeping or printing.
+	 * @param configFile [in] the config file with the simulation length and passenger arrivals.
+	 * @param floorCount [in] the number of building floors.
+	 * @param elevatorCount [in] the number of elevators.
+	 * @param discreteEvent [in] true for discrete-event mode, false for one thread per elevator.
+	 * @return the number of passengers that arrived at their destination.
+	 */
+	long runSimulation(String configFile, int floorCount, int elevatorCount, boolean discreteEvent);
+}
@@ -0,0 +1,106 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author Victoria Lai 49451704
+ * @author Matthew Robinson 73641908
+ */
+
+/**
+ * Measures BuildingManager.spawnPassengers() throughput, from one thread and from several
+ * threads spawning on random floors at once. The waiting passengers are cleared after every
+ * iteration so the counters never overflow.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpawnBenchmark
+{
+	@Param({"5", "60", "200"})
+	public int floors;
+	
+	private SimulatorBridge building;
+	
+	/**
+	 * A precomputed list of spawn and destination floors for each benchmark thread.
+	 */
+	@State(Scope.Thread)
+	public static class Spawns
+	{
+		private static final int SIZE = 1024;
+		
+		public int[] floor = new int[SIZE];
+		public int[] goingToFloor = new int[SIZE];
+		public int next;
+		
+		@Setup
+		public void setUp(SpawnBenchmark benchmark)
+		{
+			Random random = new Random(Thread.currentThread().getId());
+			for (int i = 0; i < SIZE; i++) {
+				floor[i] = random.nextInt(benchmark.floors);
+				goingToFloor[i] = (floor[i] + 1 + random.nextInt(benchmark.floors - 1)) % benchmark.floors;
+			}
+		}
+	}
+	
+	@Setup
+	public void setUp()
+	{
+		building = SimulatorBridge.create();
+		building.createBuilding(floors, 1);
+	}
+	
+	@TearDown(Level.Iteration)
+	public void clearPassengers()
+	{
+		for (int i = 0; i < floors; i++) {
+			for (int j = 0; j < floors; j++) {
+				building.clearPassengerRequests(i, j);
+			}
+		}
+	}
+	
+	@Benchmark
+	@Threads(1)
+	public void spawnPassengers(Spawns spawns)
+	{
+		spawn(spawns);
+	}
+	
+	@Benchmark
+	@Threads(4)
+	public void spawnPassengersContended(Spawns spawns)
+	{
+		spawn(spawns);
+	}
+	
+	/**
+	 * @param spawns [in] the thread's spawn list.
+	 */
+	private void spawn(Spawns spawns)
+	{
+		int i = spawns.next++ & (Spawns.SIZE - 1);
+		building.spawnPassengers(spawns.floor[i], spawns.goingToFloor[i], 1);
+	}
+}